@@ -0,0 +1,48 @@
+package com.andromedalib.andromedaSwerve.andromedaModule;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.andromedalib.andromedaSwerve.config.AndromedaSwerveConfig;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+
+/**
+ * Measures {@link AndromedaModule#periodic()} with a simulated module IO
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AndromedaModuleBenchmark {
+    private AndromedaModule module;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        HAL.initialize(500, 0);
+        Translation2d[] translations = new Translation2d[] {
+                new Translation2d(0.3, -0.3),
+                new Translation2d(-0.3, -0.3),
+                new Translation2d(-0.3, 0.3),
+                new Translation2d(0.3, 0.3)
+        };
+        AndromedaSwerveConfig config = new AndromedaSwerveConfig(0.1, 0.6, 0.6,
+                new SwerveDriveKinematics(translations), translations, 4.5, 8.0, 10.0, 20.0, 0.1);
+        module = new AndromedaModule(0, "Benchmark", config, new AndromedaModuleIOSim(config.wheelDiameter));
+    }
+
+    @Benchmark
+    public void periodic() {
+        module.updateInputs();
+        module.periodic();
+    }
+}
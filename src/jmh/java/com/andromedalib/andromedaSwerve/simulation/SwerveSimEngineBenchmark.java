@@ -0,0 +1,78 @@
+package com.andromedalib.andromedaSwerve.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.andromedalib.andromedaSwerve.config.AndromedaSwerveConfig;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+
+/**
+ * Measures a 20 ms step of {@link SwerveSimEngine} at different physics rates,
+ * with and without a {@link SimCANTransport}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SwerveSimEngineBenchmark {
+    @Param({ "250", "1000" })
+    public double odometryFrequency;
+
+    @Param({ "false", "true" })
+    public boolean withTransport;
+
+    private SwerveSimEngine engine;
+    private final List<Queue<Double>> queues = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Translation2d[] translations = new Translation2d[] {
+                new Translation2d(0.3, -0.3),
+                new Translation2d(-0.3, -0.3),
+                new Translation2d(-0.3, 0.3),
+                new Translation2d(0.3, 0.3)
+        };
+        AndromedaSwerveConfig config = new AndromedaSwerveConfig(0.1, 0.6, 0.6,
+                new SwerveDriveKinematics(translations), translations, 4.5, 8.0, 10.0, 20.0, 0.1);
+        engine = new SwerveSimEngine(config, odometryFrequency);
+        if (withTransport) {
+            SimCANTransport transport = new SimCANTransport(engine, 6328);
+            transport.setLatency(0.002, 0.0005);
+            transport.setDropProbability(0.01);
+            for (int i = 0; i < engine.getModuleCount(); i++) {
+                int module = i;
+                queues.add(transport.makeTimestampQueue());
+                queues.add(transport.registerSignal(() -> engine.getDrivePosition(module)));
+                queues.add(transport.registerSignal(() -> engine.getTurnPosition(module)));
+            }
+            queues.add(transport.registerSignal(engine::getGyroYaw));
+        }
+        for (int i = 0; i < engine.getModuleCount(); i++) {
+            engine.setDriveVelocity(i, 3.0);
+            engine.setTurnPosition(i, 0.5);
+        }
+    }
+
+    @Benchmark
+    public double step() {
+        engine.step(0.02);
+        // Drain the queues like the module IOs do every loop
+        for (Queue<Double> queue : queues) {
+            queue.clear();
+        }
+        return engine.getTimeSeconds();
+    }
+}
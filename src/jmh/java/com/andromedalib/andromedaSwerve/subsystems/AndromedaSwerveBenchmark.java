@@ -0,0 +1,51 @@
+package com.andromedalib.andromedaSwerve.subsystems;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.andromedalib.andromedaSwerve.config.AndromedaSwerveConfig;
+import com.andromedalib.andromedaSwerve.utils.SimSwerveFixture;
+import com.andromedalib.robot.LoopTimer;
+
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Measures the swerve periodic, which reads the module inputs and integrates
+ * odometry, and the module state command path
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AndromedaSwerveBenchmark {
+    private AndromedaSwerve swerve;
+    private SwerveModuleState[][] targetStates;
+    private int cycle = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        AndromedaSwerveConfig config = SimSwerveFixture.createConfig();
+        swerve = SimSwerveFixture.createSwerve(config);
+        targetStates = SimSwerveFixture.createTargetStates(config);
+    }
+
+    @Benchmark
+    public void periodic() {
+        setModuleStates();
+        LoopTimer.getInstance().update();
+        swerve.periodic();
+    }
+
+    @Benchmark
+    public void setModuleStates() {
+        cycle = (cycle + 1) & 3;
+        swerve.setModuleStates(targetStates[cycle]);
+    }
+}
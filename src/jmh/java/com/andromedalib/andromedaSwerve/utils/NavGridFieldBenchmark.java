@@ -0,0 +1,111 @@
+package com.andromedalib.andromedaSwerve.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Measures paths to a scoring location on a field sized {@link NavGridField}.
+ * "astar" searches guided by the straight line distance, "alt" by the
+ * landmark tables, and "goalField" reads the precomputed table of the goal.
+ * Choosing between the candidate goals is measured both with
+ * {@link NavGridField#rankGoals} and with one path per goal. In "goalField"
+ * every candidate has a table
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NavGridFieldBenchmark {
+    private static final double NODE_SIZE = 0.2;
+    private static final int WIDTH = 83;
+    private static final int HEIGHT = 41;
+
+    @Param({ "astar", "alt", "goalField" })
+    public String mode;
+
+    private NavGridField field;
+    private final Translation2d goal = new Translation2d(1.8, 5.5);
+    private final Translation2d[] starts = new Translation2d[] {
+            new Translation2d(14.5, 1.5),
+            new Translation2d(13.0, 6.8),
+            new Translation2d(10.2, 4.1),
+            new Translation2d(15.2, 4.0)
+    };
+    private final List<Translation2d> candidates = List.of(
+            new Translation2d(1.8, 5.5),
+            new Translation2d(1.0, 1.2),
+            new Translation2d(4.0, 7.6),
+            new Translation2d(8.3, 7.6),
+            new Translation2d(14.6, 7.0),
+            new Translation2d(15.5, 1.0));
+    private int startIndex = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        field = new NavGridField(buildGrid(), NODE_SIZE);
+        switch (mode) {
+            case "astar":
+                field.precompute(0);
+                break;
+            case "alt":
+                field.precompute(NavGridField.DEFAULT_LANDMARK_COUNT);
+                break;
+            default:
+                field.precompute(NavGridField.DEFAULT_LANDMARK_COUNT,
+                        candidates.toArray(new Translation2d[0]));
+                break;
+        }
+    }
+
+    /** Field walls, a stage-like structure and two walls the paths go around */
+    private static boolean[][] buildGrid() {
+        boolean[][] grid = new boolean[HEIGHT][WIDTH];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                boolean border = x == 0 || y == 0 || x == WIDTH - 1 || y == HEIGHT - 1;
+                boolean stage = Math.abs(x - 25) + Math.abs(y - 20) < 7 || Math.abs(x - 57) + Math.abs(y - 20) < 7;
+                boolean leftWall = x >= 40 && x <= 42 && y >= 4 && y <= 30;
+                boolean rightWall = x >= 66 && x <= 67 && y >= 12 && y <= 40;
+                grid[y][x] = border || stage || leftWall || rightWall;
+            }
+        }
+        return grid;
+    }
+
+    @Benchmark
+    public List<Translation2d> findPath() {
+        Translation2d start = starts[startIndex];
+        startIndex = (startIndex + 1) % starts.length;
+        return field.findPath(start, goal);
+    }
+
+    @Benchmark
+    public List<NavGridField.GoalCost> rankGoals() {
+        Translation2d start = starts[startIndex];
+        startIndex = (startIndex + 1) % starts.length;
+        return field.rankGoals(start, candidates);
+    }
+
+    @Benchmark
+    public List<List<Translation2d>> findPathToEachGoal() {
+        Translation2d start = starts[startIndex];
+        startIndex = (startIndex + 1) % starts.length;
+        List<List<Translation2d>> paths = new ArrayList<>();
+        for (Translation2d candidate : candidates) {
+            paths.add(field.findPath(start, candidate));
+        }
+        return paths;
+    }
+}
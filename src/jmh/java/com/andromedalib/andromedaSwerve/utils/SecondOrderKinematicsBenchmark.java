@@ -0,0 +1,66 @@
+package com.andromedalib.andromedaSwerve.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.andromedalib.andromedaSwerve.config.AndromedaSwerveConfig;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Compares the first order WPILib kinematics against
+ * {@link SecondOrderKinematics}, which also computes the feedforwards
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SecondOrderKinematicsBenchmark {
+    private SwerveDriveKinematics kinematics;
+    private SecondOrderKinematics secondOrderKinematics;
+    private ChassisSpeeds[] targets;
+    private int targetIndex = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Translation2d[] translations = new Translation2d[] {
+                new Translation2d(0.3, -0.3),
+                new Translation2d(-0.3, -0.3),
+                new Translation2d(-0.3, 0.3),
+                new Translation2d(0.3, 0.3)
+        };
+        kinematics = new SwerveDriveKinematics(translations);
+        AndromedaSwerveConfig config = new AndromedaSwerveConfig(0.1, 0.6, 0.6,
+                kinematics, translations, 4.5, 8.0, 10.0, 20.0, 0.1);
+        secondOrderKinematics = new SecondOrderKinematics(config);
+
+        targets = new ChassisSpeeds[] {
+                new ChassisSpeeds(4.0, 0.0, 0.0),
+                new ChassisSpeeds(-3.0, 2.0, 3.0),
+                new ChassisSpeeds(0.0, -4.0, -6.0),
+                new ChassisSpeeds(1.0, 1.0, 1.0)
+        };
+    }
+
+    @Benchmark
+    public SwerveModuleState[] firstOrder() {
+        targetIndex = (targetIndex + 1) & 3;
+        return kinematics.toSwerveModuleStates(targets[targetIndex]);
+    }
+
+    @Benchmark
+    public SwerveModuleState[] secondOrder() {
+        targetIndex = (targetIndex + 1) & 3;
+        return secondOrderKinematics.toSwerveModuleStates(targets[targetIndex], 2.0, -1.0, 5.0);
+    }
+}
@@ -0,0 +1,66 @@
+package com.andromedalib.andromedaSwerve.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.andromedalib.andromedaSwerve.config.AndromedaSwerveConfig;
+import com.andromedalib.andromedaSwerve.utils.SwerveSetpointGenerator.SwerveSetpoint;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Measures the cost of a single {@link SwerveSetpointGenerator#generate} call.
+ * The result must stay far below the 20 ms robot loop period
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SwerveSetpointGeneratorBenchmark {
+    private SwerveSetpointGenerator generator;
+    private ChassisSpeeds[] targets;
+    private int targetIndex = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Translation2d[] translations = new Translation2d[] {
+                new Translation2d(0.3, -0.3),
+                new Translation2d(-0.3, -0.3),
+                new Translation2d(-0.3, 0.3),
+                new Translation2d(0.3, 0.3)
+        };
+        AndromedaSwerveConfig config = new AndromedaSwerveConfig(0.1, 0.6, 0.6,
+                new SwerveDriveKinematics(translations), translations, 4.5, 8.0, 10.0, 20.0, 0.1);
+        generator = new SwerveSetpointGenerator(config, 4.0 * Math.PI);
+
+        SwerveModuleState[] states = new SwerveModuleState[translations.length];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new SwerveModuleState();
+        }
+        generator.reset(new ChassisSpeeds(), states);
+
+        // Alternate between very different targets so every limit is exercised
+        targets = new ChassisSpeeds[] {
+                new ChassisSpeeds(4.0, 0.0, 0.0),
+                new ChassisSpeeds(-3.0, 2.0, 3.0),
+                new ChassisSpeeds(0.0, -4.0, -6.0),
+                new ChassisSpeeds(0.0, 0.0, 0.0)
+        };
+    }
+
+    @Benchmark
+    public SwerveSetpoint generate() {
+        targetIndex = (targetIndex + 1) & 3;
+        return generator.generate(targets[targetIndex], 0.02);
+    }
+}
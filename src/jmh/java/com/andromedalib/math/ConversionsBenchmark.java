@@ -0,0 +1,48 @@
+package com.andromedalib.math;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the unit conversions used by the motor controller wrappers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConversionsBenchmark {
+    private double counts;
+    private double circumference;
+    private double gearRatio;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        counts = 1234.5;
+        circumference = 0.1 * Math.PI;
+        gearRatio = 6.75;
+    }
+
+    @Benchmark
+    public void falconConversions(Blackhole blackhole) {
+        blackhole.consume(Conversions.falconToDegrees(counts, gearRatio));
+        blackhole.consume(Conversions.falconToMPS(counts, circumference, gearRatio));
+        blackhole.consume(Conversions.falconToMeters(counts, circumference, gearRatio));
+        blackhole.consume(Conversions.MPSToFalcon(counts, circumference, gearRatio));
+    }
+
+    @Benchmark
+    public void wheelConversions(Blackhole blackhole) {
+        blackhole.consume(Conversions.MPSToRPS(counts, circumference));
+        blackhole.consume(Conversions.RPSToMPS(counts, circumference));
+        blackhole.consume(Conversions.rotationsToMeters(counts, circumference));
+        blackhole.consume(Conversions.metersToRotations(counts, circumference));
+    }
+}
@@ -0,0 +1,55 @@
+package com.andromedalib.math;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * Measures the {@link GeomUtil} transforms used every loop by odometry and
+ * path following
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GeomUtilBenchmark {
+    private Pose2d pose;
+    private ChassisSpeeds speeds;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        pose = new Pose2d(3.0, 2.0, Rotation2d.fromDegrees(37.0));
+        speeds = new ChassisSpeeds(2.0, -1.0, 1.5);
+    }
+
+    @Benchmark
+    public Pose2d inverse() {
+        return GeomUtil.inverse(pose);
+    }
+
+    @Benchmark
+    public Pose2d transformBy() {
+        return pose.transformBy(GeomUtil.toTransform2d(0.5, 0.25));
+    }
+
+    @Benchmark
+    public Twist2d chassisSpeedsToTwist() {
+        return GeomUtil.multiply(GeomUtil.toTwist2d(speeds), 0.02);
+    }
+
+    @Benchmark
+    public Pose2d withRotation() {
+        return GeomUtil.withRotation(pose, Rotation2d.fromDegrees(90.0));
+    }
+}
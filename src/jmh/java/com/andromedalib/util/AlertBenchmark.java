@@ -0,0 +1,42 @@
+package com.andromedalib.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.andromedalib.util.Alert.AlertType;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Measures the dashboard string generation of a group with many alerts, which
+ * runs every time the dashboard is updated
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AlertBenchmark {
+    private static final String GROUP = "BenchmarkAlerts";
+
+    @Setup(Level.Trial)
+    public void setup() {
+        HAL.initialize(500, 0);
+        AlertType[] types = AlertType.values();
+        for (int i = 0; i < 60; i++) {
+            Alert alert = new Alert(GROUP, "Benchmark alert " + i, types[i % types.length]);
+            alert.set(i % 2 == 0);
+        }
+    }
+
+    @Benchmark
+    public String[] warningStrings() {
+        return Alert.getStrings(GROUP, AlertType.WARNING);
+    }
+}
@@ -0,0 +1,48 @@
+package com.andromedalib.vision;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.andromedalib.vision.LimelightHelpers.LimelightResults;
+import com.andromedalib.vision.LimelightHelpers.PoseEstimate;
+
+/**
+ * Measures Limelight pose array decoding and JSON result parsing
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LimelightHelpersBenchmark {
+    private double[] poseArray;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Two tags, 11 pose values plus 7 values per tag
+        poseArray = new double[] { 1.0, 2.0, 0.0, 0.0, 0.0, 45.0, 30.0, 2.0, 1.2, 2.5, 0.3,
+                7.0, 0.1, -0.2, 0.3, 2.4, 2.6, 0.05,
+                8.0, -0.3, 0.1, 0.2, 3.1, 3.3, 0.1 };
+        json = "{\"Results\":{\"botpose\":[1,2,0,0,0,45],\"botpose_wpiblue\":[9.2,6.1,0,0,0,45],"
+                + "\"tl\":20.0,\"cl\":11.0,\"ts\":1.0,\"v\":1,\"pID\":0,"
+                + "\"Fiducial\":[{\"fID\":7,\"tx\":0.1,\"ty\":-0.2,\"ta\":0.3},"
+                + "{\"fID\":8,\"tx\":-0.3,\"ty\":0.1,\"ta\":0.2}]}}";
+    }
+
+    @Benchmark
+    public PoseEstimate decodePoseEstimate() {
+        return LimelightHelpers.decodePoseEstimate(poseArray, 1000000L);
+    }
+
+    @Benchmark
+    public LimelightResults parseResults() {
+        return LimelightHelpers.parseResults(json);
+    }
+}
@@ -20,6 +20,7 @@ import lombok.Getter;
 public class AndromedaModule {
     @Getter
     private final int moduleNumber;
+    @Getter
     private final String moduleName;
 
     private AndromedaModuleIO io;
@@ -81,6 +82,32 @@ public class AndromedaModule {
         setSpeed(desiredState);
     }
 
+    /**
+     * Sets the desired state with second order feedforwards
+     * 
+     * @param desiredState      {@link SwerveModuleState} to apply
+     * @param steerVelocity     Steering velocity feedforward in radians per second
+     * @param driveAcceleration Drive acceleration feedforward in meters per second
+     *                          squared
+     */
+    public void setDesiredState(SwerveModuleState desiredState, double steerVelocity, double driveAcceleration) {
+        double requestedSpeed = desiredState.speedMetersPerSecond;
+        desiredState = SwerveModuleState.optimize(desiredState, getAngle());
+
+        // The drive direction flips when the module is optimized
+        if (desiredState.speedMetersPerSecond != requestedSpeed) {
+            driveAcceleration = -driveAcceleration;
+        }
+
+        Rotation2d angle = (Math.abs(desiredState.speedMetersPerSecond) <= (andromedaSwerveConfig.maxSpeed * 0.01))
+                ? lastAngle
+                : desiredState.angle;
+        io.setTurnPosition(angle, angle == lastAngle ? 0.0 : steerVelocity);
+        lastAngle = angle;
+
+        io.setDriveVelocity(desiredState.speedMetersPerSecond, driveAcceleration);
+    }
+
     /**
      * Sets the turning motor´+´+ angle to its desired state
      * 
@@ -160,6 +187,21 @@ public class AndromedaModule {
         return odometryPositions;
     }
 
+    /** Returns true if the module IO is sampled by the odometry thread */
+    public boolean hasOdometrySamples() {
+        return io.hasOdometrySamples();
+    }
+
+    /**
+     * Reads the module position out of a sample of the odometry thread
+     * 
+     * @param sampleValues Sample values of the odometry thread
+     * @param position     Position to write the result to
+     */
+    public void readOdometrySample(double[] sampleValues, SwerveModulePosition position) {
+        io.readOdometrySample(sampleValues, position);
+    }
+
     /**
      * Runs the drive motor for characterization
      * 
@@ -3,6 +3,7 @@ package com.andromedalib.andromedaSwerve.andromedaModule;
 import org.littletonrobotics.junction.AutoLog;
 
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.units.Measure;
 import edu.wpi.first.units.Voltage;
 
@@ -44,8 +45,33 @@ public interface AndromedaModuleIO {
     public default void setDriveVelocity(double velocity) {
     }
 
+    /**
+     * Sets the turn motor to the position with a steering velocity feedforward in
+     * radians per second
+     */
+    public default void setTurnPosition(Rotation2d angle, double velocityFeedforward) {
+        setTurnPosition(angle);
+    }
+
+    /** Sets the drive motor velocity with an acceleration feedforward */
+    public default void setDriveVelocity(double velocity, double acceleration) {
+        setDriveVelocity(velocity);
+    }
+
     /** Runs the drive motor for characterization */
     public default void runDriveCharacterization(Measure<Voltage> volts) {
     }
 
+    /** Returns true if this IO is sampled by the odometry thread */
+    public default boolean hasOdometrySamples() {
+        return false;
+    }
+
+    /**
+     * Reads the module position out of a sample of the odometry thread. Called
+     * from the odometry thread
+     */
+    public default void readOdometrySample(double[] sampleValues, SwerveModulePosition position) {
+    }
+
 }
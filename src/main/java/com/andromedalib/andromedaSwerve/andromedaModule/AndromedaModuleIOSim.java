@@ -13,19 +13,29 @@
 
 package com.andromedalib.andromedaSwerve.andromedaModule;
 
+import static edu.wpi.first.units.Units.Volts;
+
+import java.util.Arrays;
+import java.util.Queue;
+
+import com.andromedalib.andromedaSwerve.simulation.DCMotorArray;
+import com.andromedalib.andromedaSwerve.simulation.SimCANTransport;
+import com.andromedalib.andromedaSwerve.simulation.SwerveSimEngine;
+import com.andromedalib.robot.LoopTimer;
+
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.Voltage;
 import edu.wpi.first.wpilibj.Timer;
-import edu.wpi.first.wpilibj.simulation.DCMotorSim;
 
 public class AndromedaModuleIOSim implements AndromedaModuleIO {
-    private static final double LOOP_PERIOD_SECS = 0.02;
-
-    private DCMotorSim driveSim = new DCMotorSim(DCMotor.getKrakenX60(1), 6.75, 0.025);
-    private DCMotorSim turnSim = new DCMotorSim(DCMotor.getKrakenX60(1), 150.0 / 7.0, 0.004);
+    private DCMotorArray driveSim = new DCMotorArray(DCMotor.getKrakenX60(1), 6.75, 0.025, 1);
+    private DCMotorArray turnSim = new DCMotorArray(DCMotor.getKrakenX60(1), 150.0 / 7.0, 0.004, 1);
 
     private final Rotation2d turnAbsoluteInitPosition = new Rotation2d(Math.random() * 2.0 * Math.PI);
     private double driveAppliedVolts = 0.0;
@@ -37,7 +47,31 @@ public class AndromedaModuleIOSim implements AndromedaModuleIO {
 
     private double wheelRadius;
 
+    private final SwerveSimEngine engine;
+    private final int moduleIndex;
+
+    /* Odometry queues, only used when samples go through a SimCANTransport */
+    private final Queue<Double> timestampQueue;
+    private final Queue<Double> drivePositionQueue;
+    private final Queue<Double> turnPositionQueue;
+    private final int drivePositionSampleIndex;
+    private final int turnPositionSampleIndex;
+
+    /**
+     * Creates a module simulated on its own, stepped once per loop with the
+     * measured loop period
+     *
+     * @param wheelDiameter Wheel diameter in meters
+     */
     public AndromedaModuleIOSim(double wheelDiameter) {
+        this.engine = null;
+        this.moduleIndex = -1;
+        this.timestampQueue = null;
+        this.drivePositionQueue = null;
+        this.turnPositionQueue = null;
+        this.drivePositionSampleIndex = -1;
+        this.turnPositionSampleIndex = -1;
+
         driveFeedforward = new SimpleMotorFeedforward(0.0, 0.13);
         driveFeedback = new PIDController(0.1, 0.0, 0.0);
         turnFeedback = new PIDController(10.0, 0.0, 0.0);
@@ -46,17 +80,67 @@ public class AndromedaModuleIOSim implements AndromedaModuleIO {
         turnFeedback.enableContinuousInput(-Math.PI, Math.PI);
     }
 
+    /**
+     * Creates a module simulated by a {@link SwerveSimEngine}. The engine steps
+     * the motors and produces the odometry samples
+     *
+     * @param engine      Simulation engine
+     * @param moduleIndex Index of the module in the engine
+     */
+    public AndromedaModuleIOSim(SwerveSimEngine engine, int moduleIndex) {
+        this(engine, moduleIndex, null);
+    }
+
+    /**
+     * Creates a module simulated by a {@link SwerveSimEngine} whose odometry
+     * samples are delivered through a {@link SimCANTransport}, with its latency,
+     * jitter and dropped frames
+     *
+     * @param engine      Simulation engine
+     * @param moduleIndex Index of the module in the engine
+     * @param transport   Transport of the odometry samples, or null to read them
+     *                    directly from the engine
+     */
+    public AndromedaModuleIOSim(SwerveSimEngine engine, int moduleIndex, SimCANTransport transport) {
+        this.engine = engine;
+        this.moduleIndex = moduleIndex;
+
+        if (transport != null) {
+            timestampQueue = transport.makeTimestampQueue();
+            drivePositionQueue = transport.registerSignal(() -> engine.getDrivePosition(moduleIndex));
+            turnPositionQueue = transport.registerSignal(() -> engine.getTurnPosition(moduleIndex));
+            drivePositionSampleIndex = transport.getSignalIndex(drivePositionQueue);
+            turnPositionSampleIndex = transport.getSignalIndex(turnPositionQueue);
+        } else {
+            timestampQueue = null;
+            drivePositionQueue = null;
+            turnPositionQueue = null;
+            drivePositionSampleIndex = -1;
+            turnPositionSampleIndex = -1;
+        }
+
+        driveFeedforward = null;
+        driveFeedback = null;
+        turnFeedback = null;
+    }
+
     @Override
     public void updateInputs(AndromedaModuleIOInputs inputs) {
-        driveSim.update(LOOP_PERIOD_SECS);
-        turnSim.update(LOOP_PERIOD_SECS);
+        if (engine != null) {
+            updateEngineInputs(inputs);
+            return;
+        }
 
-        inputs.drivePosition = driveSim.getAngularPositionRad() * (wheelRadius);
-        inputs.driveVelocity = driveSim.getAngularVelocityRadPerSec() * (wheelRadius);
+        double periodSeconds = LoopTimer.getInstance().getPeriodSeconds();
+        driveSim.update(periodSeconds);
+        turnSim.update(periodSeconds);
+
+        inputs.drivePosition = driveSim.getAngularPositionRad(0) * (wheelRadius);
+        inputs.driveVelocity = driveSim.getAngularVelocityRadPerSec(0) * (wheelRadius);
         inputs.driveAppliedVolts = driveAppliedVolts;
 
-        inputs.encoderAbsolutePosition = new Rotation2d(turnSim.getAngularPositionRad()).plus(turnAbsoluteInitPosition);
-        inputs.steerAngle = Rotation2d.fromRadians(turnSim.getAngularPositionRad());
+        inputs.encoderAbsolutePosition = new Rotation2d(turnSim.getAngularPositionRad(0)).plus(turnAbsoluteInitPosition);
+        inputs.steerAngle = Rotation2d.fromRadians(turnSim.getAngularPositionRad(0));
         inputs.turnAppliedVolts = turnAppliedVolts;
 
         inputs.odometryTimestamps = new double[] { Timer.getFPGATimestamp() };
@@ -64,21 +148,86 @@ public class AndromedaModuleIOSim implements AndromedaModuleIO {
         inputs.odometryTurnPositions = new Rotation2d[] { inputs.steerAngle };
     }
 
+    /** Reads the inputs and the odometry samples of the last engine step */
+    private void updateEngineInputs(AndromedaModuleIOInputs inputs) {
+        inputs.drivePosition = engine.getDrivePosition(moduleIndex);
+        inputs.driveVelocity = engine.getDriveVelocity(moduleIndex);
+        inputs.driveAppliedVolts = engine.getDriveAppliedVolts(moduleIndex);
+        inputs.driveCurrent = engine.getDriveCurrent(moduleIndex);
+
+        inputs.steerAngle = Rotation2d.fromRadians(engine.getTurnPosition(moduleIndex));
+        inputs.encoderAbsolutePosition = inputs.steerAngle;
+        inputs.turnVelocity = engine.getTurnVelocity(moduleIndex);
+        inputs.turnAppliedVolts = engine.getTurnAppliedVolts(moduleIndex);
+        inputs.turnCurrent = engine.getTurnCurrent(moduleIndex);
+
+        if (timestampQueue != null) {
+            inputs.odometryTimestamps = timestampQueue.stream().mapToDouble((Double value) -> value).toArray();
+            inputs.odometryDrivePositions = drivePositionQueue.stream().mapToDouble((Double value) -> value)
+                    .toArray();
+            inputs.odometryTurnPositions = turnPositionQueue.stream()
+                    .map((Double value) -> Rotation2d.fromRadians(value))
+                    .toArray(Rotation2d[]::new);
+            timestampQueue.clear();
+            drivePositionQueue.clear();
+            turnPositionQueue.clear();
+            return;
+        }
+
+        int sampleCount = engine.getSampleCount();
+        double[] turnPositions = engine.getSampleTurnPositions(moduleIndex);
+        inputs.odometryTimestamps = Arrays.copyOf(engine.getSampleTimestamps(), sampleCount);
+        inputs.odometryDrivePositions = Arrays.copyOf(engine.getSampleDrivePositions(moduleIndex), sampleCount);
+        inputs.odometryTurnPositions = new Rotation2d[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            inputs.odometryTurnPositions[i] = Rotation2d.fromRadians(turnPositions[i]);
+        }
+    }
+
+    /** Returns true if the samples go through a {@link SimCANTransport} */
+    @Override
+    public boolean hasOdometrySamples() {
+        return timestampQueue != null;
+    }
+
+    @Override
+    public void readOdometrySample(double[] sampleValues, SwerveModulePosition position) {
+        position.distanceMeters = sampleValues[drivePositionSampleIndex];
+        position.angle = Rotation2d.fromRadians(sampleValues[turnPositionSampleIndex]);
+    }
+
     @Override
     public void setDriveVelocity(double velocity) {
+        if (engine != null) {
+            engine.setDriveVelocity(moduleIndex, velocity);
+            return;
+        }
+
         double velocityRadPerSec = velocity / wheelRadius;
 
         double volts = driveFeedforward.calculate(velocityRadPerSec)
-                + driveFeedback.calculate(driveSim.getAngularVelocityRadPerSec(), velocityRadPerSec),
+                + driveFeedback.calculate(driveSim.getAngularVelocityRadPerSec(0), velocityRadPerSec);
 
-                driveAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
-        driveSim.setInputVoltage(driveAppliedVolts);
+        driveAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
+        driveSim.setInputVoltage(0, driveAppliedVolts);
     }
 
     @Override
     public void setTurnPosition(Rotation2d rotation2d) {
-        double volts = turnFeedback.calculate(turnSim.getAngularPositionRad(), rotation2d.getRadians());
+        if (engine != null) {
+            engine.setTurnPosition(moduleIndex, rotation2d.getRadians());
+            return;
+        }
+
+        double volts = turnFeedback.calculate(turnSim.getAngularPositionRad(0), rotation2d.getRadians());
         turnAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
-        turnSim.setInputVoltage(turnAppliedVolts);
+        turnSim.setInputVoltage(0, turnAppliedVolts);
+    }
+
+    @Override
+    public void runDriveCharacterization(Measure<Voltage> volts) {
+        if (engine != null) {
+            engine.setDriveVoltage(moduleIndex, volts.in(Volts));
+        }
     }
 }
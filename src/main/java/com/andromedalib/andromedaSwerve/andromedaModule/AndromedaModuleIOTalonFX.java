@@ -12,13 +12,17 @@ import com.andromedalib.andromedaSwerve.utils.PhoenixOdometryThread;
 import com.andromedalib.math.Conversions;
 import com.andromedalib.motorControllers.SuperTalonFX;
 import com.andromedalib.sensors.SuperCANCoder;
-import com.ctre.phoenix6.BaseStatusSignal;
+import com.andromedalib.util.CANBusPlanner;
+import com.andromedalib.util.DeviceConfigurator;
+import com.andromedalib.util.StatusSignalCache;
+import com.andromedalib.util.StatusSignalCache.SignalGroup;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.controls.PositionVoltage;
 import com.ctre.phoenix6.controls.VelocityVoltage;
 import com.ctre.phoenix6.controls.VoltageOut;
 
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.units.Measure;
 import edu.wpi.first.units.Voltage;
@@ -50,6 +54,13 @@ public class AndromedaModuleIOTalonFX implements AndromedaModuleIO {
         private final StatusSignal<Double> turnCurrent;
         private final Queue<Double> turnPositionQueue;
 
+        private final SignalGroup cancoderSignals;
+        private final SignalGroup driveSignals;
+        private final SignalGroup turnSignals;
+
+        private final int drivePositionSampleIndex;
+        private final int turnPositionSampleIndex;
+
         private VelocityVoltage driveVelocityControl = new VelocityVoltage(0).withSlot(0);
         private VoltageOut driveCharacterizationControl = new VoltageOut(0);
         private PositionVoltage turnPositionControl = new PositionVoltage(0).withSlot(0);
@@ -74,9 +85,9 @@ public class AndromedaModuleIOTalonFX implements AndromedaModuleIO {
                                 andromedaModuleConfig.turningMotorConfiguration,
                                 andromedaModuleConfig.swerveCANBus);
 
-                steeringMotor.setPosition(0);
-
-                resetAbsolutePosition(moduleConfig.moduleIDs.angleOffset);
+                // The absolute position depends on the CANcoder configuration
+                DeviceConfigurator.getInstance()
+                                .afterApply(() -> resetAbsolutePosition(moduleConfig.moduleIDs.angleOffset));
 
                 timestampQueue = PhoenixOdometryThread.getInstance().makeTimestampQueue();
 
@@ -97,46 +108,46 @@ public class AndromedaModuleIOTalonFX implements AndromedaModuleIO {
                 turnPositionQueue = PhoenixOdometryThread.getInstance().registerSignal(steeringMotor,
                                 steeringMotor.getPosition());
 
-                BaseStatusSignal.setUpdateFrequencyForAll(
-                                250.0, drivePosition, turnPosition);
-                BaseStatusSignal.setUpdateFrequencyForAll(
-                                50.0,
+                drivePositionSampleIndex = PhoenixOdometryThread.getInstance().getSignalIndex(drivePositionQueue);
+                turnPositionSampleIndex = PhoenixOdometryThread.getInstance().getSignalIndex(turnPositionQueue);
+
+                CANBusPlanner.getInstance().registerSignals(driveMotor, 50.0,
                                 driveVelocity,
                                 driveAppliedVolts,
-                                turnAbsolutePosition,
+                                driveAcceleration,
+                                driveCurrent);
+                CANBusPlanner.getInstance().registerSignals(steeringMotor, 50.0,
                                 turnVelocity,
                                 turnAppliedVolts,
-                                driveAcceleration,
-                                driveCurrent,
                                 turnCurrent);
-                driveMotor.optimizeBusUtilization();
-                steeringMotor.optimizeBusUtilization();
-        }
+                CANBusPlanner.getInstance().registerSignals(steeringEncoder, 50.0, turnAbsolutePosition);
+                CANBusPlanner.getInstance().optimize(driveMotor, steeringMotor);
 
-        @Override
-        public void updateInputs(AndromedaModuleIOInputs inputs) {
-
-                inputs.cancoderConnected = BaseStatusSignal.refreshAll(
-                                turnAbsolutePosition).isOK();
-
-                inputs.driveMotorConnected = BaseStatusSignal.refreshAll(
+                cancoderSignals = StatusSignalCache.getInstance().register(steeringEncoder, turnAbsolutePosition);
+                driveSignals = StatusSignalCache.getInstance().register(driveMotor,
                                 drivePosition,
                                 driveVelocity,
                                 driveAppliedVolts,
                                 driveAcceleration,
-                                driveCurrent)
-                                .isOK();
-                inputs.angleMotorConnected = BaseStatusSignal.refreshAll(
-                                turnPosition, turnVelocity, turnAppliedVolts, turnCurrent)
-                                .isOK();
+                                driveCurrent);
+                turnSignals = StatusSignalCache.getInstance().register(steeringMotor,
+                                turnPosition, turnVelocity, turnAppliedVolts, turnCurrent);
+        }
+
+        @Override
+        public void updateInputs(AndromedaModuleIOInputs inputs) {
+
+                inputs.cancoderConnected = cancoderSignals.refresh();
+                inputs.driveMotorConnected = driveSignals.refresh();
+                inputs.angleMotorConnected = turnSignals.refresh();
 
                 inputs.drivePosition = Units.rotationsToRadians(drivePosition.getValueAsDouble())
                                 * (andromedaModuleConfig.wheelDiameter / 2);
                 inputs.driveVelocity = Units
-                                .rotationsToRadians(driveMotor.getVelocity().getValueAsDouble())
+                                .rotationsToRadians(driveVelocity.getValueAsDouble())
                                 * (andromedaModuleConfig.wheelDiameter / 2);
                 inputs.driveAcceleration = Units
-                                .rotationsToRadians(driveMotor.getAcceleration().getValueAsDouble())
+                                .rotationsToRadians(driveAcceleration.getValueAsDouble())
                                 * (andromedaModuleConfig.wheelDiameter / 2);
 
                 inputs.driveAppliedVolts = driveAppliedVolts.getValueAsDouble();
@@ -165,15 +176,32 @@ public class AndromedaModuleIOTalonFX implements AndromedaModuleIO {
 
         @Override
         public void setTurnPosition(Rotation2d angle) {
-                steeringMotor.setControl(turnPositionControl.withPosition(angle.getRotations()));
+                steeringMotor.setControl(turnPositionControl.withPosition(angle.getRotations()).withVelocity(0));
         }
 
         @Override
         public void setDriveVelocity(double velocity) {
-                driveVelocityControl.Velocity = Conversions.MPSToRPS(velocity,
-                                andromedaModuleConfig.wheelCircumference);
-                driveMotor.setControl(driveVelocityControl.withVelocity(velocity)
-                                .withFeedForward(velocity));
+                setDriveVelocity(velocity, 0.0);
+        }
+
+        @Override
+        public void setTurnPosition(Rotation2d angle, double velocityFeedforward) {
+                steeringMotor.setControl(turnPositionControl.withPosition(angle.getRotations())
+                                .withVelocity(Units.radiansToRotations(velocityFeedforward)));
+        }
+
+        /**
+         * Drives at a velocity and acceleration in meters per second. The
+         * feedforward comes from the kS, kV and kA gains of the drive motor slot 0,
+         * which the motor applies to the velocity and acceleration setpoints
+         */
+        @Override
+        public void setDriveVelocity(double velocity, double acceleration) {
+                driveMotor.setControl(driveVelocityControl
+                                .withVelocity(Conversions.MPSToRPS(velocity, andromedaModuleConfig.wheelCircumference))
+                                .withAcceleration(Conversions.MPSToRPS(acceleration,
+                                                andromedaModuleConfig.wheelCircumference))
+                                .withFeedForward(0));
         }
 
         @Override
@@ -182,6 +210,18 @@ public class AndromedaModuleIOTalonFX implements AndromedaModuleIO {
                                 driveCharacterizationControl.withOutput(volts.in(edu.wpi.first.units.Units.Volts)));
         }
 
+        @Override
+        public boolean hasOdometrySamples() {
+                return true;
+        }
+
+        @Override
+        public void readOdometrySample(double[] sampleValues, SwerveModulePosition position) {
+                position.distanceMeters = Units.rotationsToRadians(sampleValues[drivePositionSampleIndex])
+                                * (andromedaModuleConfig.wheelDiameter / 2);
+                position.angle = Rotation2d.fromRotations(sampleValues[turnPositionSampleIndex]);
+        }
+
         public Rotation2d getAbsoluteRotations() {
                 return Rotation2d.fromRotations(steeringEncoder.getAbsolutePosition().getValue());
         }
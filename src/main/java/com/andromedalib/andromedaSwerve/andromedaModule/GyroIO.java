@@ -19,4 +19,14 @@ public interface GyroIO {
 
     public default void setGyroAngle(Rotation2d angle) {
     }
+
+    /**
+     * Reads the yaw out of a sample of the odometry thread. Called from the
+     * odometry thread
+     *
+     * @return The sampled yaw, or null if it is not available
+     */
+    public default Rotation2d readOdometryYawSample(double[] sampleValues) {
+        return null;
+    }
 }
@@ -9,7 +9,10 @@ package com.andromedalib.andromedaSwerve.andromedaModule;
 import java.util.Queue;
 
 import com.andromedalib.andromedaSwerve.utils.PhoenixOdometryThread;
-import com.ctre.phoenix6.BaseStatusSignal;
+import com.andromedalib.util.CANBusPlanner;
+import com.andromedalib.util.DeviceConfigurator;
+import com.andromedalib.util.StatusSignalCache;
+import com.andromedalib.util.StatusSignalCache.SignalGroup;
 import com.ctre.phoenix6.StatusCode;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.Pigeon2Configuration;
@@ -24,6 +27,9 @@ public class GyroIOPigeon2 implements GyroIO {
     private final StatusSignal<Double> yawVelocity;
     private final Queue<Double> yawPositionQueue;
     private final Queue<Double> yawTimestampQueue;
+    private final StatusSignal<Double> yawSample;
+    private final int yawSampleIndex;
+    private final SignalGroup gyroSignals;
 
     /**
      * Constructs a new GyroIOPigeon2
@@ -34,18 +40,23 @@ public class GyroIOPigeon2 implements GyroIO {
         pigeon = new Pigeon2(id, canbus);
         yaw = pigeon.getYaw();
         yawVelocity = pigeon.getAngularVelocityZWorld();
-        pigeon.getConfigurator().apply(new Pigeon2Configuration());
-        pigeon.getConfigurator().setYaw(0.0);
-        yaw.setUpdateFrequency(100.0);
-        yawVelocity.setUpdateFrequency(100.0);
+        DeviceConfigurator.getInstance().submit(DeviceConfigurator.deviceName("Pigeon2", id, canbus),
+                timeoutSeconds -> {
+                    StatusCode status = pigeon.getConfigurator().apply(new Pigeon2Configuration(), timeoutSeconds);
+                    return status.isOK() ? pigeon.getConfigurator().setYaw(0.0, timeoutSeconds) : status;
+                });
+        CANBusPlanner.getInstance().registerSignals(pigeon, 100.0, yaw, yawVelocity);
+        gyroSignals = StatusSignalCache.getInstance().register(pigeon, yaw, yawVelocity);
         yawTimestampQueue = PhoenixOdometryThread.getInstance().makeTimestampQueue();
-        yawPositionQueue = PhoenixOdometryThread.getInstance().registerSignal(pigeon, pigeon.getYaw());
+        yawSample = pigeon.getYaw();
+        yawPositionQueue = PhoenixOdometryThread.getInstance().registerSignal(pigeon, yawSample);
+        yawSampleIndex = PhoenixOdometryThread.getInstance().getSignalIndex(yawPositionQueue);
 
     }
 
     @Override
     public void updateInputs(GyroIOInputs inputs) {
-        inputs.connected = BaseStatusSignal.refreshAll(yaw, yawVelocity).equals(StatusCode.OK);
+        inputs.connected = gyroSignals.refresh();
         inputs.yawPosition = Rotation2d.fromDegrees(yaw.getValueAsDouble());
         inputs.yawVelocityDegrees = yawVelocity.getValueAsDouble();
 
@@ -64,4 +75,12 @@ public class GyroIOPigeon2 implements GyroIO {
     public void setGyroAngle(Rotation2d angle) {
         pigeon.getConfigurator().setYaw(angle.getDegrees());
     }
+
+    @Override
+    public Rotation2d readOdometryYawSample(double[] sampleValues) {
+        if (!yawSample.getStatus().isOK()) {
+            return null;
+        }
+        return Rotation2d.fromDegrees(sampleValues[yawSampleIndex]);
+    }
 }
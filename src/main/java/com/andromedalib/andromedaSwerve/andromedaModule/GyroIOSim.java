@@ -0,0 +1,137 @@
+package com.andromedalib.andromedaSwerve.andromedaModule;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.function.DoubleSupplier;
+
+import com.andromedalib.andromedaSwerve.simulation.SimCANTransport;
+import com.andromedalib.andromedaSwerve.simulation.SwerveSimEngine;
+import com.andromedalib.robot.LoopTimer;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Timer;
+
+/** Simulated gyro that integrates a yaw rate */
+public class GyroIOSim implements GyroIO {
+    private final DoubleSupplier yawRateRadPerSec;
+    private Rotation2d yaw = new Rotation2d();
+
+    private final SwerveSimEngine engine;
+    /* Difference between the reported and the simulated yaw */
+    private double yawOffsetRadians = 0.0;
+
+    /* Odometry queues, only used when samples go through a SimCANTransport */
+    private final Queue<Double> yawTimestampQueue;
+    private final Queue<Double> yawPositionQueue;
+    private final int yawSampleIndex;
+
+    /**
+     * Constructs a new GyroIOSim
+     *
+     * @param yawRateRadPerSec Supplier of the yaw rate in radians per second,
+     *                         e.g. the measured chassis speeds of the swerve
+     */
+    public GyroIOSim(DoubleSupplier yawRateRadPerSec) {
+        this.yawRateRadPerSec = yawRateRadPerSec;
+        this.engine = null;
+        this.yawTimestampQueue = null;
+        this.yawPositionQueue = null;
+        this.yawSampleIndex = -1;
+    }
+
+    /**
+     * Constructs a GyroIOSim that reads the yaw of a {@link SwerveSimEngine},
+     * with one odometry sample per engine substep
+     *
+     * @param engine Simulation engine
+     */
+    public GyroIOSim(SwerveSimEngine engine) {
+        this(engine, null);
+    }
+
+    /**
+     * Constructs a GyroIOSim that reads the yaw of a {@link SwerveSimEngine},
+     * with the odometry samples delivered through a {@link SimCANTransport}
+     *
+     * @param engine    Simulation engine
+     * @param transport Transport of the odometry samples, or null to read them
+     *                  directly from the engine
+     */
+    public GyroIOSim(SwerveSimEngine engine, SimCANTransport transport) {
+        this.yawRateRadPerSec = engine::getYawRateRadPerSec;
+        this.engine = engine;
+
+        if (transport != null) {
+            yawTimestampQueue = transport.makeTimestampQueue();
+            yawPositionQueue = transport.registerSignal(engine::getGyroYaw);
+            yawSampleIndex = transport.getSignalIndex(yawPositionQueue);
+        } else {
+            yawTimestampQueue = null;
+            yawPositionQueue = null;
+            yawSampleIndex = -1;
+        }
+    }
+
+    @Override
+    public void updateInputs(GyroIOInputs inputs) {
+        if (engine != null) {
+            updateEngineInputs(inputs);
+            return;
+        }
+
+        double yawRate = yawRateRadPerSec.getAsDouble();
+        yaw = yaw.plus(Rotation2d.fromRadians(yawRate * LoopTimer.getInstance().getPeriodSeconds()));
+
+        inputs.connected = true;
+        inputs.yawPosition = yaw;
+        inputs.yawVelocityDegrees = Units.radiansToDegrees(yawRate);
+
+        inputs.odometryYawTimestamps = new double[] { Timer.getFPGATimestamp() };
+        inputs.odometryYawPositions = new Rotation2d[] { yaw };
+    }
+
+    /** Reads the yaw and the odometry samples of the last engine step */
+    private void updateEngineInputs(GyroIOInputs inputs) {
+        yaw = Rotation2d.fromRadians(engine.getGyroYaw() + yawOffsetRadians);
+
+        inputs.connected = true;
+        inputs.yawPosition = yaw;
+        inputs.yawVelocityDegrees = Units.radiansToDegrees(engine.getYawRateRadPerSec());
+
+        if (yawTimestampQueue != null) {
+            inputs.odometryYawTimestamps = yawTimestampQueue.stream().mapToDouble((Double value) -> value)
+                    .toArray();
+            inputs.odometryYawPositions = yawPositionQueue.stream()
+                    .map((Double value) -> Rotation2d.fromRadians(value + yawOffsetRadians))
+                    .toArray(Rotation2d[]::new);
+            yawTimestampQueue.clear();
+            yawPositionQueue.clear();
+            return;
+        }
+
+        int sampleCount = engine.getSampleCount();
+        double[] yaws = engine.getSampleYaws();
+        inputs.odometryYawTimestamps = Arrays.copyOf(engine.getSampleTimestamps(), sampleCount);
+        inputs.odometryYawPositions = new Rotation2d[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            inputs.odometryYawPositions[i] = Rotation2d.fromRadians(yaws[i] + yawOffsetRadians);
+        }
+    }
+
+    @Override
+    public Rotation2d readOdometryYawSample(double[] sampleValues) {
+        if (yawPositionQueue == null) {
+            return null;
+        }
+        return Rotation2d.fromRadians(sampleValues[yawSampleIndex] + yawOffsetRadians);
+    }
+
+    @Override
+    public void setGyroAngle(Rotation2d angle) {
+        yaw = angle;
+        if (engine != null) {
+            yawOffsetRadians = angle.getRadians() - engine.getGyroYaw();
+        }
+    }
+}
@@ -24,6 +24,14 @@ public class AndromedaSwerveConfig {
     public final double wheelDiameter;
     public final double wheelCircumference;
 
+    /*
+     * Precomputed inverse kinematics, stored row major with two rows per module.
+     * First order maps [vx, vy, omega] to module velocities. Second order maps
+     * [ax, ay, omega^2, alpha] to module accelerations
+     */
+    public final double[] firstOrderInverseKinematics;
+    public final double[] secondOrderInverseKinematics;
+
     public AndromedaSwerveConfig(double deadband, double trackWidth, double wheelBase,
             SwerveDriveKinematics swerveKinematics, Translation2d[] moduleTranslation2ds, double maxSpeed,
             double maxAcceleration, double maxAngularVelocity,
@@ -39,6 +47,32 @@ public class AndromedaSwerveConfig {
         this.maxAngularAcceleration = maxAngularAcceleration;
         this.wheelDiameter = wheelDiameter;
         this.wheelCircumference = wheelDiameter * Math.PI;
+
+        int moduleCount = moduleTranslation2ds.length;
+        this.firstOrderInverseKinematics = new double[moduleCount * 2 * 3];
+        this.secondOrderInverseKinematics = new double[moduleCount * 2 * 4];
+        for (int i = 0; i < moduleCount; i++) {
+            double x = moduleTranslation2ds[i].getX();
+            double y = moduleTranslation2ds[i].getY();
+
+            int first = i * 6;
+            firstOrderInverseKinematics[first] = 1.0;
+            firstOrderInverseKinematics[first + 1] = 0.0;
+            firstOrderInverseKinematics[first + 2] = -y;
+            firstOrderInverseKinematics[first + 3] = 0.0;
+            firstOrderInverseKinematics[first + 4] = 1.0;
+            firstOrderInverseKinematics[first + 5] = x;
+
+            int second = i * 8;
+            secondOrderInverseKinematics[second] = 1.0;
+            secondOrderInverseKinematics[second + 1] = 0.0;
+            secondOrderInverseKinematics[second + 2] = -x;
+            secondOrderInverseKinematics[second + 3] = -y;
+            secondOrderInverseKinematics[second + 4] = 0.0;
+            secondOrderInverseKinematics[second + 5] = 1.0;
+            secondOrderInverseKinematics[second + 6] = -y;
+            secondOrderInverseKinematics[second + 7] = x;
+        }
     }
 
     public static enum Mode {
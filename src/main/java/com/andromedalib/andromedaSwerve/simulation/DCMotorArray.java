@@ -0,0 +1,135 @@
+package com.andromedalib.andromedaSwerve.simulation;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+
+/**
+ * Simulates several identical DC motors with a load, stored as parallel
+ * arrays.
+ *
+ * <p>
+ * Models the same system as {@code DCMotorSim}, but the discrete state
+ * matrices are solved in closed form and only recomputed when the step
+ * changes. {@code DCMotorSim} computes a matrix exponential on every update.
+ * Every motor is then advanced by one loop over flat arrays, which the JIT can
+ * vectorize, so stepping all the motors of a drivetrain at the odometry rate
+ * stays cheap.
+ */
+public final class DCMotorArray {
+    private final DCMotor motor;
+    private final double gearing;
+    private final int count;
+
+    /* Continuous model: acceleration = a * velocity + b * volts */
+    private final double a;
+    private final double b;
+
+    /* Discrete model of the last step */
+    private double stepSeconds = Double.NaN;
+    private double positionFromVelocity;
+    private double positionFromVolts;
+    private double velocityFromVelocity;
+    private double velocityFromVolts;
+
+    private final double[] positions;
+    private final double[] velocities;
+    private final double[] volts;
+
+    /**
+     * Creates the motors, all starting at rest
+     *
+     * @param motor              Motor model, one motor per mechanism
+     * @param gearing            Reduction between the motor and the mechanism
+     * @param moiKgMetersSquared Moment of inertia of the mechanism
+     * @param count              Amount of motors
+     */
+    public DCMotorArray(DCMotor motor, double gearing, double moiKgMetersSquared, int count) {
+        this.motor = motor;
+        this.gearing = gearing;
+        this.count = count;
+
+        a = -gearing * gearing * motor.KtNMPerAmp
+                / (motor.KvRadPerSecPerVolt * motor.rOhms * moiKgMetersSquared);
+        b = gearing * motor.KtNMPerAmp / (motor.rOhms * moiKgMetersSquared);
+
+        positions = new double[count];
+        velocities = new double[count];
+        volts = new double[count];
+    }
+
+    /**
+     * Solves the discrete model for a step
+     *
+     * @param dtSeconds Step length
+     */
+    private void discretize(double dtSeconds) {
+        double decay = Math.exp(a * dtSeconds);
+        double decayIntegral = (decay - 1.0) / a;
+
+        stepSeconds = dtSeconds;
+        velocityFromVelocity = decay;
+        velocityFromVolts = decayIntegral * b;
+        positionFromVelocity = decayIntegral;
+        positionFromVolts = b / a * (decayIntegral - dtSeconds);
+    }
+
+    /**
+     * Advances every motor with its input voltage
+     *
+     * @param dtSeconds Step length
+     */
+    public void update(double dtSeconds) {
+        if (dtSeconds != stepSeconds) {
+            discretize(dtSeconds);
+        }
+        double pv = positionFromVelocity;
+        double pu = positionFromVolts;
+        double vv = velocityFromVelocity;
+        double vu = velocityFromVolts;
+
+        for (int i = 0; i < count; i++) {
+            double velocity = velocities[i];
+            double input = volts[i];
+            positions[i] += pv * velocity + pu * input;
+            velocities[i] = vv * velocity + vu * input;
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setInputVoltage(int index, double inputVolts) {
+        volts[index] = inputVolts;
+    }
+
+    public double getInputVoltage(int index) {
+        return volts[index];
+    }
+
+    /**
+     * Sets the state of a motor
+     *
+     * @param index             Motor index
+     * @param positionRad       Mechanism position in radians
+     * @param velocityRadPerSec Mechanism velocity in radians per second
+     */
+    public void setState(int index, double positionRad, double velocityRadPerSec) {
+        positions[index] = positionRad;
+        velocities[index] = velocityRadPerSec;
+    }
+
+    /** Returns the mechanism position in radians */
+    public double getAngularPositionRad(int index) {
+        return positions[index];
+    }
+
+    /** Returns the mechanism velocity in radians per second */
+    public double getAngularVelocityRadPerSec(int index) {
+        return velocities[index];
+    }
+
+    /** Returns the current drawn by a motor in amps, always positive */
+    public double getCurrentDrawAmps(int index) {
+        return Math.abs(motor.getCurrent(velocities[index] * gearing, volts[index]));
+    }
+}
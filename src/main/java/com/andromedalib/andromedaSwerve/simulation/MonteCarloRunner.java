@@ -0,0 +1,442 @@
+package com.andromedalib.andromedaSwerve.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.andromedalib.andromedaSwerve.andromedaModule.AndromedaModuleIO;
+import com.andromedalib.andromedaSwerve.andromedaModule.AndromedaModuleIOSim;
+import com.andromedalib.andromedaSwerve.andromedaModule.GyroIOSim;
+import com.andromedalib.andromedaSwerve.config.AndromedaSwerveConfig;
+import com.andromedalib.andromedaSwerve.subsystems.AndromedaSwerve;
+import com.andromedalib.odometry.SuperRobotState;
+import com.andromedalib.robot.LoopTimer;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.util.sendable.SendableRegistry;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Runs an autonomous routine many times under randomized conditions.
+ *
+ * <p>
+ * Every trial drives its own {@link AndromedaSwerve} built with
+ * {@link AndromedaModuleIOSim} modules and a {@link GyroIOSim} on a
+ * {@link SwerveSimEngine}, with the odometry samples delivered through a
+ * {@link SimCANTransport}, and estimates its pose with its own
+ * {@link SuperRobotState}. Conditions (wheel radius error, gyro drift, CAN
+ * latency and vision noise) are drawn from the random generator of the trial,
+ * so trials share no state and run in parallel on a fork-join pool. Results
+ * are reproducible for a given seed. Routines are given as controller
+ * factories instead of commands, because the command scheduler is a single
+ * global instance.
+ *
+ * <p>
+ * The runner enables the simulated driver station in autonomous, so it is
+ * meant to run off the robot, e.g. from a test, without the AdvantageKit
+ * {@link org.littletonrobotics.junction.Logger} started:
+ *
+ * <pre>
+ * MonteCarloRunner runner = new MonteCarloRunner(config);
+ * runner.setWheelRadiusError(0.02);
+ * runner.setVisionNoise(0.05, 0.1);
+ * MonteCarloRunner.Summary summary = runner.run(new MonteCarloRunner.Routine(
+ *         "DriveToGoal", start, goal, 4.0, () -> (time, pose) -> driveTo(goal, pose)), 500, 6328);
+ * System.out.println(summary);
+ * </pre>
+ */
+public class MonteCarloRunner {
+    private final AndromedaSwerveConfig config;
+    private final double loopPeriodSeconds;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /* Standard deviations of the randomized conditions */
+    private double wheelRadiusErrorStdDev = 0.0;
+    private double gyroDriftStdDev = 0.0;
+    private double meanCANLatency = 0.0;
+    private double canLatencyStdDev = 0.0;
+    private double canJitterSeconds = 0.0;
+    private double visionStdDevMeters = 0.0;
+    private double visionStdDevRadians = 0.0;
+    private double visionPeriodSeconds = 0.0;
+
+    private Consumer<AndromedaSwerve> swerveSetup = swerve -> {
+    };
+
+    /**
+     * Creates a runner
+     *
+     * @param config Swerve profile of the simulated robot
+     */
+    public MonteCarloRunner(AndromedaSwerveConfig config) {
+        this.config = config;
+        this.loopPeriodSeconds = LoopTimer.getInstance().getNominalPeriodSeconds();
+    }
+
+    /**
+     * Sets the amount of trials run at the same time
+     *
+     * @param parallelism Worker threads, defaults to the amount of processors
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Sets the wheel radius error
+     *
+     * @param stdDevFraction Standard deviation of the error, as a fraction of the
+     *                       configured radius
+     */
+    public void setWheelRadiusError(double stdDevFraction) {
+        this.wheelRadiusErrorStdDev = stdDevFraction;
+    }
+
+    /**
+     * Sets the gyro drift
+     *
+     * @param stdDevRadPerSec Standard deviation of the drift in radians per
+     *                        second
+     */
+    public void setGyroDrift(double stdDevRadPerSec) {
+        this.gyroDriftStdDev = stdDevRadPerSec;
+    }
+
+    /**
+     * Sets the latency of the odometry frames, applied with
+     * {@link SimCANTransport#setLatency(double, double)}
+     *
+     * @param meanSeconds   Mean latency of the trials
+     * @param stdDevSeconds Standard deviation of the latency between trials
+     * @param jitterSeconds Standard deviation of the latency between frames
+     */
+    public void setCANLatency(double meanSeconds, double stdDevSeconds, double jitterSeconds) {
+        this.meanCANLatency = meanSeconds;
+        this.canLatencyStdDev = stdDevSeconds;
+        this.canJitterSeconds = jitterSeconds;
+    }
+
+    /**
+     * Configures the drivetrain of every trial like the robot does, e.g. with a
+     * setpoint generator or second order kinematics
+     *
+     * @param swerveSetup Called with the drivetrain of each trial
+     */
+    public void setSwerveSetup(Consumer<AndromedaSwerve> swerveSetup) {
+        this.swerveSetup = swerveSetup;
+    }
+
+    /**
+     * Adds vision measurements of the true pose with gaussian noise
+     *
+     * @param stdDevMeters  Standard deviation of the translation noise
+     * @param periodSeconds Time between measurements, zero disables vision
+     */
+    public void setVisionNoise(double stdDevMeters, double periodSeconds) {
+        setVisionNoise(stdDevMeters, 0.0, periodSeconds);
+    }
+
+    /**
+     * Adds vision measurements of the true pose with gaussian noise
+     *
+     * @param stdDevMeters  Standard deviation of the translation noise
+     * @param stdDevRadians Standard deviation of the rotation noise
+     * @param periodSeconds Time between measurements, zero disables vision
+     */
+    public void setVisionNoise(double stdDevMeters, double stdDevRadians, double periodSeconds) {
+        this.visionStdDevMeters = stdDevMeters;
+        this.visionStdDevRadians = stdDevRadians;
+        this.visionPeriodSeconds = periodSeconds;
+    }
+
+    /**
+     * Runs the routine under randomized conditions
+     *
+     * @param routine Routine to evaluate
+     * @param trials  Amount of trials
+     * @param seed    Seed of the random conditions
+     * @return Summary of every trial
+     */
+    public Summary run(Routine routine, int trials, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Callable<TrialResult>> tasks = new ArrayList<>(trials);
+        for (int i = 0; i < trials; i++) {
+            int trial = i;
+            SplittableRandom trialRandom = random.split();
+            tasks.add(() -> runTrial(routine, trial, trialRandom));
+        }
+
+        // Routines run in autonomous
+        HAL.initialize(500, 0);
+        DriverStationSim.setDsAttached(true);
+        DriverStationSim.setAutonomous(true);
+        DriverStationSim.setEnabled(true);
+        DriverStationSim.notifyNewData();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long start = System.nanoTime();
+        try {
+            List<TrialResult> results = new ArrayList<>(trials);
+            for (Future<TrialResult> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return new Summary(routine.name, results, (System.nanoTime() - start) / 1e9);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Monte Carlo run of " + routine.name + " was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Monte Carlo trial of " + routine.name + " failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs a single trial
+     *
+     * @param routine Routine to run
+     * @param trial   Trial index
+     * @param random  Random generator of the trial
+     * @return Trial result
+     */
+    private TrialResult runTrial(Routine routine, int trial, SplittableRandom random) {
+        long start = System.nanoTime();
+
+        double wheelRadiusScale = 1.0 + wheelRadiusErrorStdDev * random.nextGaussian();
+        double gyroDrift = gyroDriftStdDev * random.nextGaussian();
+        double canLatency = Math.max(0.0, meanCANLatency + canLatencyStdDev * random.nextGaussian());
+
+        SwerveSimEngine engine = new SwerveSimEngine(config);
+        engine.setWheelRadiusScale(wheelRadiusScale);
+        engine.setGyroDrift(gyroDrift);
+        engine.resetPose(routine.start);
+
+        SimCANTransport transport = new SimCANTransport(engine, random.nextLong());
+        transport.setLatency(canLatency, canJitterSeconds);
+
+        SuperRobotState robotState;
+        AndromedaSwerve swerve;
+        // Subsystems register with the global command scheduler
+        synchronized (MonteCarloRunner.class) {
+            SuperRobotState previousState = SuperRobotState.getInstance();
+            robotState = new SuperRobotState(config.swerveKinematics);
+            SuperRobotState.setInstance(previousState);
+
+            AndromedaModuleIO[] modules = new AndromedaModuleIO[engine.getModuleCount()];
+            for (int i = 0; i < modules.length; i++) {
+                modules[i] = new AndromedaModuleIOSim(engine, i, transport);
+            }
+            String[] names = new String[modules.length];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = "Module " + i;
+            }
+            swerve = new AndromedaSwerve(new GyroIOSim(engine, transport), modules, names, config, robotState,
+                    () -> loopPeriodSeconds);
+        }
+
+        try {
+            swerveSetup.accept(swerve);
+
+            // Start the estimate at the routine start
+            swerve.periodic();
+            robotState.addOdometryObservations(engine.getTimeSeconds(), Rotation2d.fromRadians(engine.getGyroYaw()),
+                    swerve.getPositions());
+            robotState.reset(routine.start);
+
+            Controller controller = routine.controllerFactory.get();
+            int cycles = (int) Math.ceil(routine.durationSeconds / loopPeriodSeconds);
+            double nextVisionTime = visionPeriodSeconds;
+
+            for (int cycle = 0; cycle < cycles; cycle++) {
+                engine.step(loopPeriodSeconds);
+                swerve.periodic();
+
+                double time = engine.getTimeSeconds();
+                if (visionPeriodSeconds > 0.0 && time >= nextVisionTime) {
+                    Pose2d truePose = engine.getPose();
+                    robotState.addVisionObservations(new Pose2d(
+                            truePose.getX() + visionStdDevMeters * random.nextGaussian(),
+                            truePose.getY() + visionStdDevMeters * random.nextGaussian(),
+                            truePose.getRotation().plus(
+                                    Rotation2d.fromRadians(visionStdDevRadians * random.nextGaussian()))),
+                            time, VecBuilder.fill(visionStdDevMeters, visionStdDevMeters, visionStdDevRadians));
+                    nextVisionTime += visionPeriodSeconds;
+                }
+
+                Pose2d estimatedPose = robotState.getLatestPose().pose;
+                swerve.runVelocity(ChassisSpeeds.fromFieldRelativeSpeeds(controller.calculate(time, estimatedPose),
+                        estimatedPose.getRotation()));
+            }
+
+            return new TrialResult(trial, wheelRadiusScale, gyroDrift, canLatency, routine.goal, engine.getPose(),
+                    robotState.getLatestPose().pose, (System.nanoTime() - start) / 1e9);
+        } finally {
+            synchronized (MonteCarloRunner.class) {
+                CommandScheduler.getInstance().unregisterSubsystem(swerve, robotState);
+            }
+            SendableRegistry.remove(swerve);
+            SendableRegistry.remove(robotState);
+        }
+    }
+
+    /** Computes the speeds of a routine, one instance per trial */
+    @FunctionalInterface
+    public interface Controller {
+        /**
+         * Computes the speeds for a cycle
+         *
+         * @param timeSeconds   Time since the routine started
+         * @param estimatedPose Pose estimated from odometry and vision
+         * @return Field relative speeds
+         */
+        ChassisSpeeds calculate(double timeSeconds, Pose2d estimatedPose);
+    }
+
+    /** Autonomous routine evaluated by the runner */
+    public static final class Routine {
+        public final String name;
+        public final Pose2d start;
+        public final Pose2d goal;
+        public final double durationSeconds;
+        public final Supplier<Controller> controllerFactory;
+
+        /**
+         * Creates a routine
+         *
+         * @param name              Name used when reporting
+         * @param start             Starting pose
+         * @param goal              Pose the routine should end at
+         * @param durationSeconds   Time the routine runs for
+         * @param controllerFactory Creates a new controller for every trial
+         */
+        public Routine(String name, Pose2d start, Pose2d goal, double durationSeconds,
+                Supplier<Controller> controllerFactory) {
+            this.name = name;
+            this.start = start;
+            this.goal = goal;
+            this.durationSeconds = durationSeconds;
+            this.controllerFactory = controllerFactory;
+        }
+    }
+
+    /** Conditions and outcome of a trial */
+    public static final class TrialResult {
+        public final int trial;
+        public final double wheelRadiusScale;
+        public final double gyroDriftRadPerSec;
+        public final double canLatencySeconds;
+        public final Pose2d truePose;
+        public final Pose2d estimatedPose;
+        /* Distance between the true end pose and the goal */
+        public final double translationErrorMeters;
+        public final double rotationErrorRadians;
+        /* Distance between the estimated and the true end pose */
+        public final double odometryErrorMeters;
+        public final double runTimeSeconds;
+
+        public TrialResult(int trial, double wheelRadiusScale, double gyroDriftRadPerSec,
+                double canLatencySeconds, Pose2d goal, Pose2d truePose, Pose2d estimatedPose,
+                double runTimeSeconds) {
+            this.trial = trial;
+            this.wheelRadiusScale = wheelRadiusScale;
+            this.gyroDriftRadPerSec = gyroDriftRadPerSec;
+            this.canLatencySeconds = canLatencySeconds;
+            this.truePose = truePose;
+            this.estimatedPose = estimatedPose;
+            this.translationErrorMeters = truePose.getTranslation().getDistance(goal.getTranslation());
+            this.rotationErrorRadians = Math.abs(truePose.getRotation().minus(goal.getRotation()).getRadians());
+            this.odometryErrorMeters = estimatedPose.getTranslation().getDistance(truePose.getTranslation());
+            this.runTimeSeconds = runTimeSeconds;
+        }
+    }
+
+    /** Error distributions of a run */
+    public static final class Summary {
+        public final String routineName;
+        public final List<TrialResult> trials;
+        public final Distribution translationErrorMeters;
+        public final Distribution rotationErrorRadians;
+        public final Distribution odometryErrorMeters;
+        public final Distribution trialRunTimeSeconds;
+        public final double wallTimeSeconds;
+
+        public Summary(String routineName, List<TrialResult> trials, double wallTimeSeconds) {
+            this.routineName = routineName;
+            this.trials = trials;
+            this.wallTimeSeconds = wallTimeSeconds;
+
+            int count = trials.size();
+            double[] translation = new double[count];
+            double[] rotation = new double[count];
+            double[] odometry = new double[count];
+            double[] runTime = new double[count];
+            for (int i = 0; i < count; i++) {
+                TrialResult result = trials.get(i);
+                translation[i] = result.translationErrorMeters;
+                rotation[i] = result.rotationErrorRadians;
+                odometry[i] = result.odometryErrorMeters;
+                runTime[i] = result.runTimeSeconds;
+            }
+            translationErrorMeters = new Distribution(translation);
+            rotationErrorRadians = new Distribution(rotation);
+            odometryErrorMeters = new Distribution(odometry);
+            trialRunTimeSeconds = new Distribution(runTime);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d trials in %.2f s%n", routineName, trials.size(), wallTimeSeconds)
+                    + "  End translation error (m): " + translationErrorMeters + System.lineSeparator()
+                    + "  End rotation error (rad):  " + rotationErrorRadians + System.lineSeparator()
+                    + "  Odometry error (m):        " + odometryErrorMeters + System.lineSeparator()
+                    + "  Trial run time (s):        " + trialRunTimeSeconds;
+        }
+    }
+
+    /** Statistics of a set of values */
+    public static final class Distribution {
+        public final double mean;
+        public final double p50;
+        public final double p95;
+        public final double max;
+
+        public Distribution(double[] values) {
+            double[] sorted = values.clone();
+            Arrays.sort(sorted);
+
+            double total = 0.0;
+            for (double value : sorted) {
+                total += value;
+            }
+            mean = sorted.length == 0 ? 0.0 : total / sorted.length;
+            p50 = percentile(sorted, 0.5);
+            p95 = percentile(sorted, 0.95);
+            max = sorted.length == 0 ? 0.0 : sorted[sorted.length - 1];
+        }
+
+        private static double percentile(double[] sorted, double fraction) {
+            if (sorted.length == 0) {
+                return 0.0;
+            }
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("mean %.4f, p50 %.4f, p95 %.4f, max %.4f", mean, p50, p95, max);
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.andromedalib.andromedaSwerve.simulation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.DoubleSupplier;
+
+import org.littletonrobotics.junction.Logger;
+
+import com.andromedalib.andromedaSwerve.utils.PhoenixOdometryThread;
+import com.andromedalib.andromedaSwerve.utils.PhoenixOdometryThread.OdometrySampleListener;
+
+/**
+ * Delivers the odometry samples of a {@link SwerveSimEngine} the way the CAN
+ * bus and {@link PhoenixOdometryThread} do on a real robot.
+ *
+ * <p>
+ * Every engine substep sends one frame per registered signal. Frames are
+ * serialized on a bus with a limited bit rate and background load, then
+ * delayed by a latency with jitter, and each one can be dropped. A sample is
+ * complete once every signal arrived, or after the same timeout the odometry
+ * thread waits for, in which case dropped signals keep their last value. Like
+ * the odometry thread, the sample timestamp is compensated with the latency
+ * measured after each frame arrived, so the time spent on the bus is not
+ * compensated.
+ *
+ * <p>
+ * Completed samples are offered to queues of {@link PhoenixOdometryThread}'s
+ * size and passed to {@link OdometrySampleListener}s, so the code that drains
+ * the queues on the robot can be exercised off-robot.
+ */
+public class SimCANTransport {
+    /* Bits of a CAN 2.0 frame with 8 data bytes, including stuff bits */
+    private static final double FRAME_BITS = 130.0;
+
+    private final SwerveSimEngine engine;
+    private final double periodSeconds;
+    private final SplittableRandom random;
+
+    private final List<DoubleSupplier> sources = new ArrayList<>();
+    private final List<Queue<Double>> queues = new ArrayList<>();
+    private final List<Queue<Double>> timestampQueues = new ArrayList<>();
+    private final List<OdometrySampleListener> sampleListeners = new ArrayList<>();
+
+    private final ArrayDeque<Sample> pendingSamples = new ArrayDeque<>();
+    private double[] lastValues = new double[0];
+    private double[] lastArrivals = new double[0];
+    private double[] sampleValues = new double[0];
+    /* Per signal latency and jitter, NaN uses the values of setLatency */
+    private double[] signalLatencies = new double[0];
+    private double[] signalJitters = new double[0];
+    private double lastCompletionTime = 0.0;
+    private double busFreeTime = 0.0;
+
+    private double latencySeconds = 0.0;
+    private double jitterSeconds = 0.0;
+    private double dropProbability = 0.0;
+    private double bitRate = 1e6;
+    private double backgroundUtilization = 0.0;
+
+    /* Statistics */
+    private long deliveredSamples = 0;
+    private long droppedFrames = 0;
+    private long queueOverflows = 0;
+    private double totalTimestampError = 0.0;
+    private double maxTimestampError = 0.0;
+    private double maxSampleDelay = 0.0;
+
+    /**
+     * Creates a transport and attaches it to an engine
+     *
+     * @param engine Engine whose substeps send the frames
+     * @param seed   Seed of the latency, jitter and drops
+     */
+    public SimCANTransport(SwerveSimEngine engine, long seed) {
+        this.engine = engine;
+        this.periodSeconds = engine.getOdometryPeriodSeconds();
+        this.random = new SplittableRandom(seed);
+        engine.setTransport(this);
+    }
+
+    /**
+     * Sets the delay between a frame leaving the bus and its value being read,
+     * used by the signals registered without their own latency
+     *
+     * @param latencySeconds Mean latency
+     * @param jitterSeconds  Standard deviation of the latency
+     */
+    public void setLatency(double latencySeconds, double jitterSeconds) {
+        this.latencySeconds = latencySeconds;
+        this.jitterSeconds = jitterSeconds;
+    }
+
+    /**
+     * Sets the chance of a frame being lost
+     *
+     * @param dropProbability Probability between 0 and 1
+     */
+    public void setDropProbability(double dropProbability) {
+        this.dropProbability = dropProbability;
+    }
+
+    /**
+     * Sets the bus bandwidth. Frames wait for the bus when it is busy, and are
+     * lost when they wait longer than the odometry timeout
+     *
+     * @param bitRate               Bus bit rate, 1 Mbit/s for the RIO bus
+     * @param backgroundUtilization Fraction of the bus used by other frames
+     */
+    public void setBusLoad(double bitRate, double backgroundUtilization) {
+        this.bitRate = bitRate;
+        this.backgroundUtilization = Math.min(0.99, Math.max(0.0, backgroundUtilization));
+    }
+
+    /**
+     * Registers a signal sampled every engine substep
+     *
+     * @param source Reads the simulated value
+     * @return Queue the samples of the signal are offered to
+     */
+    public Queue<Double> registerSignal(DoubleSupplier source) {
+        return registerSignal(source, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Registers a signal sampled every engine substep with its own latency, e.g.
+     * a device on a slower bus or behind a busier gateway
+     *
+     * @param source         Reads the simulated value
+     * @param latencySeconds Mean latency of the frames of the signal
+     * @param jitterSeconds  Standard deviation of the latency
+     * @return Queue the samples of the signal are offered to
+     */
+    public Queue<Double> registerSignal(DoubleSupplier source, double latencySeconds, double jitterSeconds) {
+        Queue<Double> queue = new ArrayBlockingQueue<>(PhoenixOdometryThread.QUEUE_CAPACITY);
+        sources.add(source);
+        queues.add(queue);
+
+        int count = sources.size();
+        signalLatencies = Arrays.copyOf(signalLatencies, count);
+        signalJitters = Arrays.copyOf(signalJitters, count);
+        signalLatencies[count - 1] = latencySeconds;
+        signalJitters[count - 1] = jitterSeconds;
+        lastValues = new double[count];
+        lastArrivals = new double[count];
+        sampleValues = new double[count];
+        for (int i = 0; i < count; i++) {
+            lastValues[i] = sources.get(i).getAsDouble();
+            lastArrivals[i] = engine.getTimeSeconds();
+        }
+        return queue;
+    }
+
+    /**
+     * Sets the latency of a registered signal, e.g. one registered by
+     * {@code AndromedaModuleIOSim}. Signals are numbered in the order they were
+     * registered
+     *
+     * @param signalIndex    Index of the signal, see {@link #getSignalIndex}
+     * @param latencySeconds Mean latency of the frames of the signal
+     * @param jitterSeconds  Standard deviation of the latency
+     */
+    public void setSignalLatency(int signalIndex, double latencySeconds, double jitterSeconds) {
+        if (signalIndex < 0 || signalIndex >= signalLatencies.length) {
+            throw new IllegalArgumentException("SimCANTransport has no signal " + signalIndex);
+        }
+        signalLatencies[signalIndex] = latencySeconds;
+        signalJitters[signalIndex] = jitterSeconds;
+    }
+
+    public Queue<Double> makeTimestampQueue() {
+        Queue<Double> queue = new ArrayBlockingQueue<>(PhoenixOdometryThread.QUEUE_CAPACITY);
+        timestampQueues.add(queue);
+        return queue;
+    }
+
+    /**
+     * Gets the index of a registered signal inside the sample values passed to an
+     * {@link OdometrySampleListener}
+     *
+     * @param queue Queue returned by {@link #registerSignal}
+     * @return Index of the signal, or -1 if the queue was not registered
+     */
+    public int getSignalIndex(Queue<Double> queue) {
+        for (int i = 0; i < queues.size(); i++) {
+            if (queues.get(i) == queue) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a listener that is called for every completed sample
+     *
+     * @param listener Listener to add
+     */
+    public void addSampleListener(OdometrySampleListener listener) {
+        sampleListeners.add(listener);
+    }
+
+    /**
+     * Sends the frames of an engine substep and delivers the samples completed
+     * by then. Called by the engine
+     *
+     * @param timeSeconds Engine time of the substep
+     */
+    void onEngineSample(double timeSeconds) {
+        int count = sources.size();
+        if (count > 0) {
+            send(timeSeconds, count);
+        }
+
+        while (!pendingSamples.isEmpty() && pendingSamples.peekFirst().completionTime <= timeSeconds) {
+            deliver(pendingSamples.pollFirst());
+        }
+    }
+
+    /**
+     * Sends every signal through the bus and schedules the sample
+     *
+     * @param timeSeconds Time the frames are sent
+     * @param count       Amount of signals
+     */
+    private void send(double timeSeconds, int count) {
+        double frameSeconds = FRAME_BITS / bitRate / (1.0 - backgroundUtilization);
+        double timeout = timeSeconds + 2.0 * periodSeconds;
+
+        Sample sample = new Sample(timeSeconds, count);
+        boolean complete = true;
+        double completion = timeSeconds;
+
+        for (int i = 0; i < count; i++) {
+            double start = Math.max(timeSeconds, busFreeTime);
+            boolean dropped = random.nextDouble() < dropProbability || start - timeSeconds > 2.0 * periodSeconds;
+            if (dropped) {
+                droppedFrames++;
+                complete = false;
+                sample.values[i] = lastValues[i];
+                sample.arrivals[i] = lastArrivals[i];
+                continue;
+            }
+
+            busFreeTime = start + frameSeconds;
+            double latency = Double.isNaN(signalLatencies[i]) ? latencySeconds : signalLatencies[i];
+            double jitter = Double.isNaN(signalJitters[i]) ? jitterSeconds : signalJitters[i];
+            double arrival = busFreeTime + Math.max(0.0, latency + jitter * random.nextGaussian());
+            sample.values[i] = sources.get(i).getAsDouble();
+            sample.arrivals[i] = arrival;
+            lastValues[i] = sample.values[i];
+            lastArrivals[i] = arrival;
+            completion = Math.max(completion, arrival);
+        }
+
+        // Waiting for every signal times out when a frame was lost, and samples are
+        // read one after another
+        if (!complete) {
+            completion = Math.max(completion, timeout);
+        }
+        sample.completionTime = Math.max(completion, lastCompletionTime);
+        lastCompletionTime = sample.completionTime;
+        pendingSamples.addLast(sample);
+    }
+
+    /**
+     * Offers a completed sample to the queues and listeners
+     *
+     * @param sample Sample to deliver
+     */
+    private void deliver(Sample sample) {
+        int count = sample.values.length;
+
+        // Same compensation as the odometry thread: the mean time since each frame
+        // arrived
+        double totalLatency = 0.0;
+        for (int i = 0; i < count; i++) {
+            totalLatency += sample.completionTime - Math.min(sample.arrivals[i], sample.completionTime);
+        }
+        double timestamp = sample.completionTime - totalLatency / count;
+
+        for (int i = 0; i < count; i++) {
+            sampleValues[i] = sample.values[i];
+            if (!queues.get(i).offer(sample.values[i])) {
+                queueOverflows++;
+            }
+        }
+        for (Queue<Double> queue : timestampQueues) {
+            if (!queue.offer(timestamp)) {
+                queueOverflows++;
+            }
+        }
+        for (OdometrySampleListener listener : sampleListeners) {
+            listener.onSample(timestamp, sampleValues);
+        }
+
+        double timestampError = Math.abs(timestamp - sample.sendTime);
+        deliveredSamples++;
+        totalTimestampError += timestampError;
+        maxTimestampError = Math.max(maxTimestampError, timestampError);
+        maxSampleDelay = Math.max(maxSampleDelay, sample.completionTime - sample.sendTime);
+    }
+
+    /** Logs the transport statistics under {@code SimCAN/} */
+    public void logStats() {
+        Logger.recordOutput("SimCAN/DeliveredSamples", deliveredSamples);
+        Logger.recordOutput("SimCAN/DroppedFrames", droppedFrames);
+        Logger.recordOutput("SimCAN/QueueOverflows", queueOverflows);
+        Logger.recordOutput("SimCAN/PendingSamples", pendingSamples.size());
+        Logger.recordOutput("SimCAN/MeanTimestampErrorMS", getMeanTimestampErrorSeconds() * 1000.0);
+        Logger.recordOutput("SimCAN/MaxTimestampErrorMS", maxTimestampError * 1000.0);
+        Logger.recordOutput("SimCAN/MaxSampleDelayMS", maxSampleDelay * 1000.0);
+    }
+
+    public long getDeliveredSamples() {
+        return deliveredSamples;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /** Returns the amount of values lost because a queue was full */
+    public long getQueueOverflows() {
+        return queueOverflows;
+    }
+
+    /**
+     * Returns the mean difference between the compensated timestamps and the
+     * time the samples were taken
+     */
+    public double getMeanTimestampErrorSeconds() {
+        return deliveredSamples == 0 ? 0.0 : totalTimestampError / deliveredSamples;
+    }
+
+    public double getMaxTimestampErrorSeconds() {
+        return maxTimestampError;
+    }
+
+    /** Returns the longest time between taking a sample and delivering it */
+    public double getMaxSampleDelaySeconds() {
+        return maxSampleDelay;
+    }
+
+    /** Frames sent together by an engine substep */
+    private static final class Sample {
+        private final double sendTime;
+        private final double[] values;
+        private final double[] arrivals;
+        private double completionTime;
+
+        private Sample(double sendTime, int count) {
+            this.sendTime = sendTime;
+            this.values = new double[count];
+            this.arrivals = new double[count];
+        }
+    }
+}
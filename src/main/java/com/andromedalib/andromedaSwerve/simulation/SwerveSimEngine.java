@@ -0,0 +1,457 @@
+package com.andromedalib.andromedaSwerve.simulation;
+
+import com.andromedalib.andromedaSwerve.andromedaModule.AndromedaModule;
+import com.andromedalib.andromedaSwerve.andromedaModule.AndromedaModuleIOSim;
+import com.andromedalib.andromedaSwerve.andromedaModule.GyroIOSim;
+import com.andromedalib.andromedaSwerve.config.AndromedaSwerveConfig;
+import com.andromedalib.robot.LoopTimer;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.system.plant.DCMotor;
+
+/**
+ * Headless swerve simulation running on a virtual clock.
+ *
+ * <p>
+ * Every module and the gyro are stepped together at the odometry frequency,
+ * so each loop cycle produces one odometry sample per substep, like the
+ * odometry thread does on a real robot. The motor closed loops also run every
+ * substep, emulating the controllers running on the motors. Nothing reads the
+ * wall clock, so the simulation runs as fast as the CPU allows.
+ *
+ * <p>
+ * Connect a drivetrain with
+ * {@link AndromedaModuleIOSim#AndromedaModuleIOSim(SwerveSimEngine, int)} and
+ * {@link GyroIOSim#GyroIOSim(SwerveSimEngine)}, then run the robot loop
+ * through {@link #runCycle(Runnable)}:
+ *
+ * <pre>
+ * SwerveSimEngine engine = new SwerveSimEngine(config);
+ * for (int i = 0; i &lt; 750; i++) {
+ *     engine.runCycle(CommandScheduler.getInstance()::run);
+ * }
+ * </pre>
+ */
+public class SwerveSimEngine {
+    private static final DCMotor DRIVE_MOTOR = DCMotor.getKrakenX60(1);
+    private static final DCMotor TURN_MOTOR = DCMotor.getKrakenX60(1);
+    private static final double DRIVE_GEARING = 6.75;
+    private static final double TURN_GEARING = 150.0 / 7.0;
+    private static final double DRIVE_MOI = 0.025;
+    private static final double TURN_MOI = 0.004;
+    private static final double MAX_VOLTS = 12.0;
+
+    /* Closed loop gains, in volts per wheel or module radian */
+    private static final double DRIVE_KV = 0.13;
+    private static final double DRIVE_KP = 0.1;
+    private static final double TURN_KP = 10.0;
+
+    private final SwerveDriveKinematics kinematics;
+    private final int moduleCount;
+    private final double odometryPeriodSeconds;
+    private final double loopPeriodSeconds;
+    private final double wheelRadius;
+
+    private final DCMotorArray driveMotors;
+    private final DCMotorArray turnMotors;
+
+    /* Commands, drive in wheel radians per second and turn in radians */
+    private final double[] driveSetpoints;
+    private final double[] turnSetpoints;
+    private final boolean[] driveOpenLoop;
+
+    /* Commands waiting for the command latency to elapse */
+    private final double[] pendingDriveSetpoints;
+    private final double[] pendingTurnSetpoints;
+    private boolean hasPendingCommands = false;
+    private double pendingCommandTime = 0.0;
+
+    private final double[] lastDrivePositions;
+    private final SwerveModulePosition[] moduleDeltas;
+
+    private SimCANTransport transport = null;
+
+    /* Modeling errors */
+    private double wheelRadiusScale = 1.0;
+    private double gyroDriftRadPerSec = 0.0;
+    private double commandLatencySeconds = 0.0;
+
+    private double timeSeconds = 0.0;
+    private Pose2d pose = new Pose2d();
+    private double yawRadians = 0.0;
+    private double yawRateRadPerSec = 0.0;
+
+    /* Odometry samples produced by the last step */
+    private int sampleCount = 0;
+    private double[] sampleTimestamps = new double[0];
+    private double[][] sampleDrivePositions;
+    private double[][] sampleTurnPositions;
+    private double[] sampleYaws = new double[0];
+
+    /**
+     * Creates an engine sampling odometry at
+     * {@link AndromedaModule#ODOMETRY_FREQUENCY}
+     *
+     * @param config Swerve profile
+     */
+    public SwerveSimEngine(AndromedaSwerveConfig config) {
+        this(config, AndromedaModule.ODOMETRY_FREQUENCY);
+    }
+
+    /**
+     * Creates an engine
+     *
+     * @param config            Swerve profile
+     * @param odometryFrequency Odometry sampling rate in hertz, also used as the
+     *                          physics rate
+     */
+    public SwerveSimEngine(AndromedaSwerveConfig config, double odometryFrequency) {
+        // Own kinematics, so engines can run on different threads
+        this.kinematics = new SwerveDriveKinematics(config.moduleTranslations);
+        this.moduleCount = config.moduleTranslations.length;
+        this.odometryPeriodSeconds = 1.0 / odometryFrequency;
+        this.loopPeriodSeconds = LoopTimer.getInstance().getNominalPeriodSeconds();
+        this.wheelRadius = config.wheelDiameter / 2.0;
+
+        driveMotors = new DCMotorArray(DRIVE_MOTOR, DRIVE_GEARING, DRIVE_MOI, moduleCount);
+        turnMotors = new DCMotorArray(TURN_MOTOR, TURN_GEARING, TURN_MOI, moduleCount);
+        driveSetpoints = new double[moduleCount];
+        turnSetpoints = new double[moduleCount];
+        driveOpenLoop = new boolean[moduleCount];
+        pendingDriveSetpoints = new double[moduleCount];
+        pendingTurnSetpoints = new double[moduleCount];
+        lastDrivePositions = new double[moduleCount];
+        moduleDeltas = new SwerveModulePosition[moduleCount];
+        sampleDrivePositions = new double[moduleCount][0];
+        sampleTurnPositions = new double[moduleCount][0];
+
+        for (int i = 0; i < moduleCount; i++) {
+            moduleDeltas[i] = new SwerveModulePosition();
+        }
+    }
+
+    /**
+     * Advances the simulation, producing one odometry sample per substep. The
+     * samples of previous steps are discarded
+     *
+     * @param dtSeconds Time to advance
+     */
+    public void step(double dtSeconds) {
+        int substeps = Math.max(1, (int) Math.round(dtSeconds / odometryPeriodSeconds));
+        double substepSeconds = dtSeconds / substeps;
+        ensureSampleCapacity(substeps);
+        sampleCount = 0;
+
+        for (int step = 0; step < substeps; step++) {
+            if (hasPendingCommands && timeSeconds - pendingCommandTime >= commandLatencySeconds) {
+                applyPendingCommands();
+            }
+
+            // Motor closed loops
+            for (int i = 0; i < moduleCount; i++) {
+                if (!driveOpenLoop[i]) {
+                    driveMotors.setInputVoltage(i, MathUtil.clamp(DRIVE_KV * driveSetpoints[i]
+                            + DRIVE_KP * (driveSetpoints[i] - driveMotors.getAngularVelocityRadPerSec(i)),
+                            -MAX_VOLTS, MAX_VOLTS));
+                }
+                turnMotors.setInputVoltage(i, MathUtil.clamp(
+                        TURN_KP * MathUtil.angleModulus(turnSetpoints[i] - turnMotors.getAngularPositionRad(i)),
+                        -MAX_VOLTS, MAX_VOLTS));
+            }
+
+            driveMotors.update(substepSeconds);
+            turnMotors.update(substepSeconds);
+
+            for (int i = 0; i < moduleCount; i++) {
+                double drivePosition = driveMotors.getAngularPositionRad(i) * wheelRadius;
+                moduleDeltas[i].distanceMeters = (drivePosition - lastDrivePositions[i]) * wheelRadiusScale;
+                moduleDeltas[i].angle = Rotation2d.fromRadians(turnMotors.getAngularPositionRad(i));
+                lastDrivePositions[i] = drivePosition;
+            }
+
+            Twist2d twist = kinematics.toTwist2d(moduleDeltas);
+            pose = pose.exp(twist);
+            yawRadians += twist.dtheta;
+            yawRateRadPerSec = twist.dtheta / substepSeconds;
+            timeSeconds += substepSeconds;
+
+            recordSample();
+            if (transport != null) {
+                transport.onEngineSample(timeSeconds);
+            }
+        }
+    }
+
+    /**
+     * Runs a robot loop cycle: advances the simulation by the nominal loop
+     * period, updates the {@link LoopTimer} with the virtual clock and runs the
+     * cycle
+     *
+     * @param cycle Robot loop code, e.g. the command scheduler
+     */
+    public void runCycle(Runnable cycle) {
+        step(loopPeriodSeconds);
+        LoopTimer.getInstance().update(getTimestampMicros());
+        cycle.run();
+    }
+
+    /** Stores the current state as an odometry sample */
+    private void recordSample() {
+        sampleTimestamps[sampleCount] = timeSeconds;
+        sampleYaws[sampleCount] = getGyroYaw();
+        for (int i = 0; i < moduleCount; i++) {
+            sampleDrivePositions[i][sampleCount] = lastDrivePositions[i];
+            sampleTurnPositions[i][sampleCount] = turnMotors.getAngularPositionRad(i);
+        }
+        sampleCount++;
+    }
+
+    /**
+     * Grows the sample buffers so a step fits
+     *
+     * @param samples Samples produced by the step
+     */
+    private void ensureSampleCapacity(int samples) {
+        if (sampleTimestamps.length >= samples) {
+            return;
+        }
+        sampleTimestamps = new double[samples];
+        sampleYaws = new double[samples];
+        for (int i = 0; i < moduleCount; i++) {
+            sampleDrivePositions[i] = new double[samples];
+            sampleTurnPositions[i] = new double[samples];
+        }
+    }
+
+    /**
+     * Commands a drive velocity, run by the closed loop of the motor
+     *
+     * @param module         Module index
+     * @param velocityMeters Wheel velocity in meters per second
+     */
+    public void setDriveVelocity(int module, double velocityMeters) {
+        driveOpenLoop[module] = false;
+        if (commandLatencySeconds <= 0.0) {
+            driveSetpoints[module] = velocityMeters / wheelRadius;
+            return;
+        }
+        beginPendingCommands();
+        pendingDriveSetpoints[module] = velocityMeters / wheelRadius;
+    }
+
+    /**
+     * Applies a voltage to a drive motor, used for characterization
+     *
+     * @param module Module index
+     * @param volts  Voltage to apply
+     */
+    public void setDriveVoltage(int module, double volts) {
+        driveOpenLoop[module] = true;
+        driveMotors.setInputVoltage(module, MathUtil.clamp(volts, -MAX_VOLTS, MAX_VOLTS));
+    }
+
+    /**
+     * Commands a module angle, run by the closed loop of the motor
+     *
+     * @param module       Module index
+     * @param angleRadians Module angle in radians
+     */
+    public void setTurnPosition(int module, double angleRadians) {
+        if (commandLatencySeconds <= 0.0) {
+            turnSetpoints[module] = angleRadians;
+            return;
+        }
+        beginPendingCommands();
+        pendingTurnSetpoints[module] = angleRadians;
+    }
+
+    /**
+     * Starts collecting the commands sent at the current time. Commands still
+     * pending from an earlier time are applied first, so they are never lost
+     */
+    private void beginPendingCommands() {
+        if (hasPendingCommands && pendingCommandTime == timeSeconds) {
+            return;
+        }
+        if (hasPendingCommands) {
+            applyPendingCommands();
+        }
+        System.arraycopy(driveSetpoints, 0, pendingDriveSetpoints, 0, moduleCount);
+        System.arraycopy(turnSetpoints, 0, pendingTurnSetpoints, 0, moduleCount);
+        pendingCommandTime = timeSeconds;
+        hasPendingCommands = true;
+    }
+
+    /** Makes the pending commands reach the motors */
+    private void applyPendingCommands() {
+        System.arraycopy(pendingDriveSetpoints, 0, driveSetpoints, 0, moduleCount);
+        System.arraycopy(pendingTurnSetpoints, 0, turnSetpoints, 0, moduleCount);
+        hasPendingCommands = false;
+    }
+
+    /**
+     * Sets the ratio between the real and the configured wheel radius. Positions
+     * are still reported with the configured radius, like a real encoder, so
+     * odometry drifts from the true pose
+     *
+     * @param wheelRadiusScale Real radius divided by the configured radius
+     */
+    public void setWheelRadiusScale(double wheelRadiusScale) {
+        this.wheelRadiusScale = wheelRadiusScale;
+    }
+
+    /**
+     * Sets a constant drift of the gyro
+     *
+     * @param gyroDriftRadPerSec Drift in radians per second
+     */
+    public void setGyroDrift(double gyroDriftRadPerSec) {
+        this.gyroDriftRadPerSec = gyroDriftRadPerSec;
+    }
+
+    /**
+     * Sets the time a velocity or position command takes to reach the motors
+     *
+     * @param commandLatencySeconds Latency in seconds
+     */
+    public void setCommandLatency(double commandLatencySeconds) {
+        this.commandLatencySeconds = commandLatencySeconds;
+    }
+
+    /**
+     * Moves the robot without changing the module states
+     *
+     * @param pose New pose, its rotation is also used as the yaw
+     */
+    public void resetPose(Pose2d pose) {
+        this.pose = pose;
+        this.yawRadians = pose.getRotation().getRadians();
+    }
+
+    /**
+     * Sends the samples of every substep through a transport. Called by the
+     * transport
+     *
+     * @param transport Transport to use
+     */
+    void setTransport(SimCANTransport transport) {
+        this.transport = transport;
+    }
+
+    public int getModuleCount() {
+        return moduleCount;
+    }
+
+    /** Returns the time between odometry samples in seconds */
+    public double getOdometryPeriodSeconds() {
+        return odometryPeriodSeconds;
+    }
+
+    /** Returns the simulated (true) pose of the robot */
+    public Pose2d getPose() {
+        return pose;
+    }
+
+    /** Returns the virtual time in seconds */
+    public double getTimeSeconds() {
+        return timeSeconds;
+    }
+
+    /** Returns the virtual time in microseconds */
+    public long getTimestampMicros() {
+        return (long) (timeSeconds * 1e6);
+    }
+
+    /** Returns the true unwrapped yaw in radians */
+    public double getYaw() {
+        return yawRadians;
+    }
+
+    /** Returns the unwrapped yaw measured by the gyro, including its drift */
+    public double getGyroYaw() {
+        return yawRadians + gyroDriftRadPerSec * timeSeconds;
+    }
+
+    /** Returns the yaw rate measured by the gyro in radians per second */
+    public double getYawRateRadPerSec() {
+        return yawRateRadPerSec + gyroDriftRadPerSec;
+    }
+
+    /** Returns the drive position in meters */
+    public double getDrivePosition(int module) {
+        return lastDrivePositions[module];
+    }
+
+    /** Returns the drive velocity in meters per second */
+    public double getDriveVelocity(int module) {
+        return driveMotors.getAngularVelocityRadPerSec(module) * wheelRadius;
+    }
+
+    public double getDriveAppliedVolts(int module) {
+        return driveMotors.getInputVoltage(module);
+    }
+
+    public double getDriveCurrent(int module) {
+        return driveMotors.getCurrentDrawAmps(module);
+    }
+
+    /** Returns the module angle in radians */
+    public double getTurnPosition(int module) {
+        return turnMotors.getAngularPositionRad(module);
+    }
+
+    /** Returns the module angular velocity in radians per second */
+    public double getTurnVelocity(int module) {
+        return turnMotors.getAngularVelocityRadPerSec(module);
+    }
+
+    public double getTurnAppliedVolts(int module) {
+        return turnMotors.getInputVoltage(module);
+    }
+
+    public double getTurnCurrent(int module) {
+        return turnMotors.getCurrentDrawAmps(module);
+    }
+
+    /** Returns the amount of odometry samples produced by the last step */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Returns the sample timestamps in seconds. Only the first
+     * {@link #getSampleCount()} values are valid
+     */
+    public double[] getSampleTimestamps() {
+        return sampleTimestamps;
+    }
+
+    /**
+     * Returns the sampled drive positions of a module in meters. Only the first
+     * {@link #getSampleCount()} values are valid
+     */
+    public double[] getSampleDrivePositions(int module) {
+        return sampleDrivePositions[module];
+    }
+
+    /**
+     * Returns the sampled angles of a module in radians. Only the first
+     * {@link #getSampleCount()} values are valid
+     */
+    public double[] getSampleTurnPositions(int module) {
+        return sampleTurnPositions[module];
+    }
+
+    /**
+     * Returns the sampled gyro yaws in radians. Only the first
+     * {@link #getSampleCount()} values are valid
+     */
+    public double[] getSampleYaws() {
+        return sampleYaws;
+    }
+}
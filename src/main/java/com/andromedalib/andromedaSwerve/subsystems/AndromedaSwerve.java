@@ -12,6 +12,8 @@ import static edu.wpi.first.units.Units.Volts;
 
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
 
 import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
@@ -21,8 +23,20 @@ import com.andromedalib.andromedaSwerve.andromedaModule.AndromedaModuleIO;
 import com.andromedalib.andromedaSwerve.andromedaModule.GyroIO;
 import com.andromedalib.andromedaSwerve.andromedaModule.GyroIOInputsAutoLogged;
 import com.andromedalib.andromedaSwerve.config.AndromedaSwerveConfig;
+import com.andromedalib.andromedaSwerve.simulation.SimCANTransport;
+import com.andromedalib.andromedaSwerve.utils.OdometrySlipDetector;
 import com.andromedalib.andromedaSwerve.utils.PhoenixOdometryThread;
+import com.andromedalib.andromedaSwerve.utils.PhoenixOdometryThread.OdometrySampleListener;
+import com.andromedalib.andromedaSwerve.utils.SecondOrderKinematics;
+import com.andromedalib.andromedaSwerve.utils.SwerveSetpointGenerator;
+import com.andromedalib.andromedaSwerve.utils.SwerveSetpointGenerator.SwerveSetpoint;
 import com.andromedalib.odometry.SuperRobotState;
+import com.andromedalib.robot.LoopProfiler;
+import com.andromedalib.robot.LoopTimer;
+import com.andromedalib.robot.WarmupManager;
+import com.andromedalib.util.Alert;
+import com.andromedalib.util.Alert.AlertType;
+import com.andromedalib.util.CANBusPlanner;
 
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Twist2d;
@@ -37,14 +51,18 @@ import edu.wpi.first.units.MutableMeasure;
 import edu.wpi.first.units.Velocity;
 import edu.wpi.first.units.Voltage;
 import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 
 public class AndromedaSwerve extends SubsystemBase {
 
-  private AndromedaModule[] modules = new AndromedaModule[4];
+  /* Names used when the default four module layout is built */
+  private static final String[] DEFAULT_MODULE_NAMES = new String[] {
+      "Front Right", "Back Right", "Back Left", "Front Left" };
+
+  private final AndromedaModule[] modules;
+  private final int moduleCount;
   public AndromedaSwerveConfig andromedaProfile;
 
   private final SuperRobotState robotState;
@@ -53,10 +71,34 @@ public class AndromedaSwerve extends SubsystemBase {
   private final GyroIOInputsAutoLogged gyroInputs = new GyroIOInputsAutoLogged();
 
   @AutoLogOutput(key = "Swerve/Rotation")
-  private Rotation2d rawGyroRotation = new Rotation2d();
-  private SwerveModulePosition[] lastModulePositions = new SwerveModulePosition[4];
+  private volatile Rotation2d rawGyroRotation = new Rotation2d();
+  private final SwerveModulePosition[] lastModulePositions;
+  private final SwerveModulePosition[] moduleDeltas;
 
   public static final Lock odometryLock = new ReentrantLock();
+  private final Lock inputsLock;
+
+  private final DoubleSupplier loopPeriodSeconds;
+
+  private SwerveSetpointGenerator setpointGenerator = null;
+
+  private volatile boolean highRateOdometry = false;
+
+  private final int periodicSection;
+
+  private SecondOrderKinematics secondOrderKinematics = null;
+  private final ChassisSpeeds lastCommandedSpeeds = new ChassisSpeeds();
+
+  /* Odometry sanity checks */
+  private static final double ODOMETRY_ALERT_HOLD_SECONDS = 1.0;
+  private final OdometrySlipDetector slipDetector;
+  private final SwerveModulePosition[] correctedModulePositions;
+  private final Alert slipAlert = new Alert("Swerve wheel slip detected", AlertType.WARNING);
+  private final Alert gyroMismatchAlert = new Alert("Gyro disagrees with wheel odometry", AlertType.WARNING);
+  private final Alert collisionAlert = new Alert("Swerve collision detected", AlertType.WARNING);
+  private long lastSlipCount = 0;
+  private long lastGyroMismatchCount = 0;
+  private long lastCollisionCount = 0;
 
   /* Characterization */
   private final MutableMeasure<Voltage> m_appliedVoltage = MutableMeasure.zero(Volts);
@@ -70,52 +112,171 @@ public class AndromedaSwerve extends SubsystemBase {
             runSwerveCharacterization(volts);
           },
           log -> {
-            log.motor("drive-left")
-                .voltage(
-                    m_appliedVoltage.mut_replace(
-                        modules[3].getDriveVoltage(), Volts))
-                .linearPosition(m_distance.mut_replace(modules[3].getPosition().distanceMeters, Meters))
-                .linearVelocity(
-                    m_velocity.mut_replace(modules[3].getDriveSpeed(), MetersPerSecond));
-            log.motor("drive-right")
-                .voltage(
-                    m_appliedVoltage.mut_replace(
-                        modules[0].getDriveVoltage() * RobotController.getBatteryVoltage(), Volts))
-                .linearPosition(m_distance.mut_replace(modules[3].getPosition().distanceMeters, Meters))
-                .linearVelocity(
-                    m_velocity.mut_replace(modules[0].getDriveSpeed(), MetersPerSecond));
+            for (AndromedaModule module : modules) {
+              log.motor("drive-" + module.getModuleName())
+                  .voltage(
+                      m_appliedVoltage.mut_replace(
+                          module.getDriveVoltage(), Volts))
+                  .linearPosition(m_distance.mut_replace(module.getPosition().distanceMeters, Meters))
+                  .linearVelocity(
+                      m_velocity.mut_replace(module.getDriveSpeed(), MetersPerSecond));
+            }
           },
           this));
 
-  /** Creates a new AndromedaSwerve. */
+  /**
+   * Creates a new AndromedaSwerve. The amount of modules is taken from the
+   * module translations of the profile. Four module drivetrains use the
+   * default module names, any other layout names its modules by index
+   * 
+   * @param gyroIO           Gyro IO implementation
+   * @param modulesIO        Module IO implementations, in the same order as
+   *                         the module translations
+   * @param andromedaProfile Swerve profile
+   * @param robotState       Robot state that receives odometry observations
+   */
   public AndromedaSwerve(GyroIO gyroIO, AndromedaModuleIO[] modulesIO, AndromedaSwerveConfig andromedaProfile,
       SuperRobotState robotState) {
+    this(gyroIO, modulesIO, defaultModuleNames(andromedaProfile.moduleTranslations.length), andromedaProfile,
+        robotState);
+  }
+
+  /**
+   * Creates a new AndromedaSwerve with custom module names
+   * 
+   * @param gyroIO           Gyro IO implementation
+   * @param modulesIO        Module IO implementations, in the same order as
+   *                         the module translations
+   * @param moduleNames      Module names used for logging and alerts
+   * @param andromedaProfile Swerve profile
+   * @param robotState       Robot state that receives odometry observations
+   */
+  public AndromedaSwerve(GyroIO gyroIO, AndromedaModuleIO[] modulesIO, String[] moduleNames,
+      AndromedaSwerveConfig andromedaProfile, SuperRobotState robotState) {
+    this(gyroIO, modulesIO, moduleNames, andromedaProfile, robotState, null);
+  }
+
+  /**
+   * Creates a new AndromedaSwerve that can run outside the robot loop, e.g. in
+   * a headless simulation. When a loop period is given, it is used instead of
+   * {@link LoopTimer}, and the drivetrain is not registered with the odometry
+   * thread, the {@link CANBusPlanner}, the {@link WarmupManager} or the
+   * {@link LoopProfiler}, so several drivetrains can run on different threads
+   * 
+   * @param gyroIO            Gyro IO implementation
+   * @param modulesIO         Module IO implementations, in the same order as
+   *                          the module translations
+   * @param moduleNames       Module names used for logging and alerts
+   * @param andromedaProfile  Swerve profile
+   * @param robotState        Robot state that receives odometry observations
+   * @param loopPeriodSeconds Supplies the loop period in seconds, or null to
+   *                          use {@link LoopTimer} and the robot services
+   */
+  public AndromedaSwerve(GyroIO gyroIO, AndromedaModuleIO[] modulesIO, String[] moduleNames,
+      AndromedaSwerveConfig andromedaProfile, SuperRobotState robotState, DoubleSupplier loopPeriodSeconds) {
     this.andromedaProfile = andromedaProfile;
     this.robotState = robotState;
-    modules[0] = new AndromedaModule(0, "Front Right", andromedaProfile, modulesIO[0]);
-    modules[1] = new AndromedaModule(1, "Back Right", andromedaProfile, modulesIO[1]);
-    modules[2] = new AndromedaModule(2, "Back Left", andromedaProfile, modulesIO[2]);
-    modules[3] = new AndromedaModule(3, "Front Left", andromedaProfile, modulesIO[3]);
-    lastModulePositions = new SwerveModulePosition[] {
-        new SwerveModulePosition(),
-        new SwerveModulePosition(),
-        new SwerveModulePosition(),
-        new SwerveModulePosition()
-    };
+    this.moduleCount = andromedaProfile.moduleTranslations.length;
+
+    if (modulesIO.length != moduleCount || moduleNames.length != moduleCount) {
+      throw new IllegalArgumentException("AndromedaSwerve expected " + moduleCount
+          + " module IOs and names (one per module translation) but got " + modulesIO.length + " and "
+          + moduleNames.length);
+    }
+
+    modules = new AndromedaModule[moduleCount];
+    correctedModulePositions = new SwerveModulePosition[moduleCount];
+    slipDetector = new OdometrySlipDetector(andromedaProfile.moduleTranslations, andromedaProfile.maxAcceleration);
+    lastModulePositions = new SwerveModulePosition[moduleCount];
+    moduleDeltas = new SwerveModulePosition[moduleCount];
+    for (int i = 0; i < moduleCount; i++) {
+      modules[i] = new AndromedaModule(i, moduleNames[i], andromedaProfile, modulesIO[i]);
+      lastModulePositions[i] = new SwerveModulePosition();
+      moduleDeltas[i] = new SwerveModulePosition();
+    }
 
     this.gyroIO = gyroIO;
 
+    if (loopPeriodSeconds != null) {
+      this.loopPeriodSeconds = loopPeriodSeconds;
+      this.inputsLock = new ReentrantLock();
+      this.periodicSection = -1;
+      return;
+    }
+
+    this.loopPeriodSeconds = LoopTimer.getInstance()::getPeriodSeconds;
+    this.inputsLock = odometryLock;
+    this.periodicSection = LoopProfiler.getInstance().registerSection("AndromedaSwerve");
+
+    CANBusPlanner.getInstance().apply();
     PhoenixOdometryThread.getInstance().start();
+
+    WarmupManager.getInstance().register("Swerve", 10000, createWarmupTask());
+  }
+
+  /**
+   * Creates the {@link WarmupManager} task for the drive and odometry math. It
+   * uses its own objects, including its own kinematics since WPILib keeps the
+   * last module headings in them, so the drivetrain state is never touched
+   * 
+   * @return Warmup task
+   */
+  private Runnable createWarmupTask() {
+    SwerveDriveKinematics warmupDriveKinematics = new SwerveDriveKinematics(andromedaProfile.moduleTranslations);
+    SecondOrderKinematics warmupKinematics = new SecondOrderKinematics(andromedaProfile);
+    OdometrySlipDetector warmupDetector = new OdometrySlipDetector(andromedaProfile.moduleTranslations,
+        andromedaProfile.maxAcceleration);
+    SwerveModulePosition[] positions = new SwerveModulePosition[moduleCount];
+    SwerveModulePosition[] corrected = new SwerveModulePosition[moduleCount];
+    SwerveModulePosition[] deltas = new SwerveModulePosition[moduleCount];
+    for (int i = 0; i < moduleCount; i++) {
+      positions[i] = new SwerveModulePosition();
+      deltas[i] = new SwerveModulePosition();
+    }
+    double period = 1.0 / AndromedaModule.ODOMETRY_FREQUENCY;
+    double[] time = new double[] { 0.0 };
+
+    return () -> {
+      time[0] += period;
+      ChassisSpeeds speeds = ChassisSpeeds.discretize(
+          ChassisSpeeds.fromFieldRelativeSpeeds(2.0, 1.0, 1.5, Rotation2d.fromRadians(time[0])), period);
+      SwerveModuleState[] states = warmupDriveKinematics.toSwerveModuleStates(speeds);
+      SwerveDriveKinematics.desaturateWheelSpeeds(states, andromedaProfile.maxSpeed);
+      warmupKinematics.toSwerveModuleStates(speeds, 1.0, 0.5, 2.0);
+
+      for (int i = 0; i < moduleCount; i++) {
+        states[i] = SwerveModuleState.optimize(states[i], positions[i].angle);
+        deltas[i].distanceMeters = states[i].speedMetersPerSecond * period;
+        deltas[i].angle = states[i].angle;
+        positions[i] = new SwerveModulePosition(positions[i].distanceMeters + deltas[i].distanceMeters,
+            states[i].angle);
+      }
+
+      warmupDetector.process(time[0], positions, time[0], corrected);
+      warmupDriveKinematics.toTwist2d(deltas);
+      warmupDriveKinematics.toChassisSpeeds(states);
+    };
   }
 
   @Override
   public void periodic() {
-    odometryLock.lock(); // Prevents odometry updates while reading data
+    if (periodicSection < 0) {
+      updatePeriodic();
+      return;
+    }
+    LoopProfiler.getInstance().start(periodicSection);
+    updatePeriodic();
+    LoopProfiler.getInstance().stop(periodicSection);
+  }
+
+  /** Reads the inputs, logs the state and updates odometry */
+  private void updatePeriodic() {
+    inputsLock.lock(); // Prevents odometry updates while reading data
     gyroIO.updateInputs(gyroInputs);
     for (var module : modules) {
       module.updateInputs();
     }
-    odometryLock.unlock();
+    inputsLock.unlock();
     Logger.processInputs("Swerve/Gyro", gyroInputs);
     for (var module : modules) {
       module.periodic();
@@ -126,6 +287,12 @@ public class AndromedaSwerve extends SubsystemBase {
       Logger.recordOutput("Swerve/SwerveStates/Setpoints", new SwerveModuleState[] {});
       Logger.recordOutput("Swerve/SwerveStates/SetpointsOptimized", new SwerveModuleState[] {});
       Logger.recordOutput("Swerve/DesiredChassisSpeeds", new ChassisSpeeds());
+
+      // Start from the measured state once the robot is enabled again
+      if (setpointGenerator != null) {
+        setpointGenerator.reset(getRobotRelativeChassisSpeeds(), getModuleStates());
+      }
+      resetCommandedSpeeds();
     }
 
     Logger.recordOutput("Swerve/SwerveStates/Measured", getModuleStates());
@@ -135,33 +302,168 @@ public class AndromedaSwerve extends SubsystemBase {
     // Update odometry
     double[] sampleTimestamps = modules[0].getOdometryTimestamps(); // All signals are sampled together
     int sampleCount = sampleTimestamps.length;
+    for (AndromedaModule module : modules) {
+      // Guard against a module that missed the last sample
+      sampleCount = Math.min(sampleCount, module.getOdometryPositions().length);
+    }
+    if (gyroInputs.connected) {
+      sampleCount = Math.min(sampleCount, gyroInputs.odometryYawPositions.length);
+    }
     Logger.recordOutput("Swerve/Samplecount", sampleCount);
+
+    updateOdometryAlerts();
+
+    // Samples were already integrated by the odometry thread. Replay has no
+    // odometry thread, so the logged samples are integrated here instead
+    if (highRateOdometry && !Logger.hasReplaySource()) {
+      return;
+    }
+
     for (int i = 0; i < sampleCount; i++) {
-      // Read wheel positions and deltas from each module
-      SwerveModulePosition[] modulePositions = new SwerveModulePosition[4];
-      SwerveModulePosition[] moduleDeltas = new SwerveModulePosition[4];
-      for (int moduleIndex = 0; moduleIndex < 4; moduleIndex++) {
+      // Read wheel positions from each module
+      SwerveModulePosition[] modulePositions = new SwerveModulePosition[moduleCount];
+      for (int moduleIndex = 0; moduleIndex < moduleCount; moduleIndex++) {
         modulePositions[moduleIndex] = modules[moduleIndex].getOdometryPositions()[i];
-        moduleDeltas[moduleIndex] = new SwerveModulePosition(
-            modulePositions[moduleIndex].distanceMeters
-                - lastModulePositions[moduleIndex].distanceMeters,
-            modulePositions[moduleIndex].angle);
-        lastModulePositions[moduleIndex] = modulePositions[moduleIndex];
       }
 
-      // Update gyro angle
-      if (gyroInputs.connected) {
-        // Use the real gyro angle
-        rawGyroRotation = gyroInputs.odometryYawPositions[i];
-      } else {
-        // Use the angle delta from the kinematics and module deltas
-        Twist2d twist = andromedaProfile.swerveKinematics.toTwist2d(moduleDeltas);
-        rawGyroRotation = rawGyroRotation.plus(new Rotation2d(twist.dtheta));
+      integrateOdometrySample(sampleTimestamps[i], modulePositions,
+          gyroInputs.connected ? gyroInputs.odometryYawPositions[i] : null);
+    }
+  }
+
+  /**
+   * Integrates odometry on the odometry sampling thread instead of once per
+   * loop, so {@link SuperRobotState} always holds a pose built from the latest
+   * sample. Inputs are still recorded every loop, and replay integrates the
+   * recorded samples in {@link #periodic()}. Only available when every module
+   * IO is sampled by the odometry thread
+   * 
+   * @return True if high rate odometry was enabled
+   */
+  public boolean enableHighRateOdometry() {
+    return enableHighRateOdometry(listener -> PhoenixOdometryThread.getInstance().addSampleListener(listener));
+  }
+
+  /**
+   * Integrates odometry on every sample delivered by a {@link SimCANTransport},
+   * like {@link #enableHighRateOdometry()} does with the odometry thread on a
+   * real robot. Only available when every module IO sends its samples through
+   * the transport
+   * 
+   * @param transport Transport of the simulated odometry samples
+   * @return True if high rate odometry was enabled
+   */
+  public boolean enableHighRateOdometry(SimCANTransport transport) {
+    return enableHighRateOdometry(transport::addSampleListener);
+  }
+
+  /**
+   * Enables high rate odometry with the samples of a source
+   * 
+   * @param sampleSource Adds a listener to the source of the samples
+   * @return True if high rate odometry was enabled
+   */
+  private boolean enableHighRateOdometry(Consumer<OdometrySampleListener> sampleSource) {
+    for (AndromedaModule module : modules) {
+      if (!module.hasOdometrySamples()) {
+        DriverStation.reportWarning("High rate odometry requires every module IO to provide odometry samples", false);
+        return false;
       }
+    }
 
-      // Apply update
-      robotState.addOdometryObservations(sampleTimestamps[i], rawGyroRotation, modulePositions);
+    if (!highRateOdometry && !Logger.hasReplaySource()) {
+      sampleSource.accept(this::integrateThreadSample);
     }
+    highRateOdometry = true;
+    return true;
+  }
+
+  /**
+   * Integrates a sample on the odometry thread
+   * 
+   * @param timestampSeconds Sample timestamp
+   * @param sampleValues     Sample values of the odometry thread
+   */
+  private void integrateThreadSample(double timestampSeconds, double[] sampleValues) {
+    SwerveModulePosition[] modulePositions = new SwerveModulePosition[moduleCount];
+    for (int i = 0; i < moduleCount; i++) {
+      modulePositions[i] = new SwerveModulePosition();
+      modules[i].readOdometrySample(sampleValues, modulePositions[i]);
+    }
+
+    integrateOdometrySample(timestampSeconds, modulePositions, gyroIO.readOdometryYawSample(sampleValues));
+  }
+
+  /**
+   * Integrates a single odometry sample into the robot state
+   * 
+   * @param timestampSeconds Sample timestamp
+   * @param modulePositions  Module positions of the sample
+   * @param gyroYaw          Gyro yaw of the sample, or null if the gyro is not
+   *                         available
+   */
+  private synchronized void integrateOdometrySample(double timestampSeconds, SwerveModulePosition[] modulePositions,
+      Rotation2d gyroYaw) {
+    for (int moduleIndex = 0; moduleIndex < moduleCount; moduleIndex++) {
+      moduleDeltas[moduleIndex].distanceMeters = modulePositions[moduleIndex].distanceMeters
+          - lastModulePositions[moduleIndex].distanceMeters;
+      moduleDeltas[moduleIndex].angle = modulePositions[moduleIndex].angle;
+      lastModulePositions[moduleIndex] = modulePositions[moduleIndex];
+    }
+
+    // Update gyro angle
+    if (gyroYaw != null) {
+      // Use the real gyro angle
+      rawGyroRotation = gyroYaw;
+    } else {
+      // Use the angle delta from the kinematics and module deltas
+      Twist2d twist = andromedaProfile.swerveKinematics.toTwist2d(moduleDeltas);
+      rawGyroRotation = rawGyroRotation.plus(new Rotation2d(twist.dtheta));
+    }
+
+    // Replace slipping modules and lower the trust of bad samples
+    slipDetector.process(timestampSeconds, modulePositions, gyroYaw != null ? gyroYaw.getRadians() : Double.NaN,
+        correctedModulePositions);
+    SwerveModulePosition[] samplePositions = new SwerveModulePosition[moduleCount];
+    System.arraycopy(correctedModulePositions, 0, samplePositions, 0, moduleCount);
+
+    // Apply update
+    robotState.addOdometryObservations(timestampSeconds, rawGyroRotation, samplePositions,
+        slipDetector.getSampleTrust());
+  }
+
+  /**
+   * Logs the odometry sanity events detected since the last loop and raises the
+   * corresponding alerts
+   */
+  private void updateOdometryAlerts() {
+    long slipCount = slipDetector.getSlipCount();
+    long gyroMismatchCount = slipDetector.getGyroMismatchCount();
+    long collisionCount = slipDetector.getCollisionCount();
+
+    Logger.recordOutput("Swerve/Odometry/SlipSamples", slipCount - lastSlipCount);
+    Logger.recordOutput("Swerve/Odometry/GyroMismatchSamples", gyroMismatchCount - lastGyroMismatchCount);
+    Logger.recordOutput("Swerve/Odometry/CollisionSamples", collisionCount - lastCollisionCount);
+
+    boolean recentEvent = Logger.getTimestamp() / 1e6
+        - slipDetector.getLastEventTimestamp() < ODOMETRY_ALERT_HOLD_SECONDS;
+    slipAlert.set(recentEvent && (slipCount != lastSlipCount || slipAlert.get()));
+    gyroMismatchAlert.set(recentEvent && (gyroMismatchCount != lastGyroMismatchCount || gyroMismatchAlert.get()));
+    collisionAlert.set(recentEvent && (collisionCount != lastCollisionCount || collisionAlert.get()));
+
+    lastSlipCount = slipCount;
+    lastGyroMismatchCount = gyroMismatchCount;
+    lastCollisionCount = collisionCount;
+  }
+
+  /**
+   * Gets the detector used to sanity check odometry samples, e.g. to tune its
+   * thresholds
+   * 
+   * @return {@link OdometrySlipDetector} of the drivetrain
+   */
+  public OdometrySlipDetector getSlipDetector() {
+    return slipDetector;
   }
 
   /**
@@ -171,15 +473,138 @@ public class AndromedaSwerve extends SubsystemBase {
    */
   protected void drive(ChassisSpeeds chassisSpeeds) {
 
-    chassisSpeeds = ChassisSpeeds.discretize(chassisSpeeds, 0.02);
+    double periodSeconds = loopPeriodSeconds.getAsDouble();
 
-    SwerveModuleState[] swerveModuleStates = andromedaProfile.swerveKinematics.toSwerveModuleStates(chassisSpeeds);
+    chassisSpeeds = ChassisSpeeds.discretize(chassisSpeeds, periodSeconds);
 
     Logger.recordOutput("Swerve/DesiredChassisSpeeds", chassisSpeeds);
 
+    SwerveModuleState[] generatedStates = null;
+    if (setpointGenerator != null) {
+      SwerveSetpoint setpoint = setpointGenerator.generate(chassisSpeeds, periodSeconds);
+
+      Logger.recordOutput("Swerve/SetpointChassisSpeeds", setpoint.chassisSpeeds);
+
+      chassisSpeeds = setpoint.chassisSpeeds;
+      generatedStates = setpoint.moduleStates;
+    }
+
+    if (secondOrderKinematics != null) {
+      double ax = (chassisSpeeds.vxMetersPerSecond - lastCommandedSpeeds.vxMetersPerSecond) / periodSeconds;
+      double ay = (chassisSpeeds.vyMetersPerSecond - lastCommandedSpeeds.vyMetersPerSecond) / periodSeconds;
+      double alpha = (chassisSpeeds.omegaRadiansPerSecond - lastCommandedSpeeds.omegaRadiansPerSecond)
+          / periodSeconds;
+      rememberCommandedSpeeds(chassisSpeeds);
+
+      SwerveModuleState[] states = secondOrderKinematics.toSwerveModuleStates(chassisSpeeds, ax, ay, alpha);
+      double[] steerVelocities = secondOrderKinematics.getSteerVelocities();
+      double[] driveAccelerations = secondOrderKinematics.getDriveAccelerations();
+
+      // The generator states are steering and acceleration limited, so only the
+      // feedforwards are taken from the second order kinematics
+      if (generatedStates != null) {
+        for (int i = 0; i < moduleCount; i++) {
+          if (states[i].angle.minus(generatedStates[i].angle).getCos() < 0.0) {
+            driveAccelerations[i] = -driveAccelerations[i];
+          }
+          states[i].angle = generatedStates[i].angle;
+          states[i].speedMetersPerSecond = generatedStates[i].speedMetersPerSecond;
+        }
+      }
+
+      // Same as desaturateWheelSpeeds, also scaling the feedforwards
+      double maxModuleSpeed = 0.0;
+      for (SwerveModuleState state : states) {
+        maxModuleSpeed = Math.max(maxModuleSpeed, Math.abs(state.speedMetersPerSecond));
+      }
+      if (maxModuleSpeed > andromedaProfile.maxSpeed) {
+        double scale = andromedaProfile.maxSpeed / maxModuleSpeed;
+        for (int i = 0; i < moduleCount; i++) {
+          states[i].speedMetersPerSecond *= scale;
+          steerVelocities[i] *= scale;
+          driveAccelerations[i] *= scale;
+        }
+      }
+
+      Logger.recordOutput("Swerve/SwerveStates/Setpoints", states);
+
+      for (AndromedaModule andromedaModule : modules) {
+        int i = andromedaModule.getModuleNumber();
+        andromedaModule.setDesiredState(states[i], steerVelocities[i], driveAccelerations[i]);
+      }
+      return;
+    }
+    rememberCommandedSpeeds(chassisSpeeds);
+
+    if (generatedStates != null) {
+      setModuleStates(generatedStates);
+      return;
+    }
+
+    SwerveModuleState[] swerveModuleStates = andromedaProfile.swerveKinematics.toSwerveModuleStates(chassisSpeeds);
+
     setModuleStates(swerveModuleStates);
   }
 
+  /**
+   * Drives the robot with robot relative speeds, the same way subclasses do
+   * through {@link #drive(ChassisSpeeds)}. Used to run routines from outside
+   * the drivetrain, e.g. in simulation
+   * 
+   * @param chassisSpeeds The desired robot relative ChassisSpeeds
+   */
+  public void runVelocity(ChassisSpeeds chassisSpeeds) {
+    drive(chassisSpeeds);
+  }
+
+  /**
+   * Stores the last commanded speeds, used to estimate the commanded
+   * acceleration
+   * 
+   * @param chassisSpeeds Commanded speeds
+   */
+  private void rememberCommandedSpeeds(ChassisSpeeds chassisSpeeds) {
+    lastCommandedSpeeds.vxMetersPerSecond = chassisSpeeds.vxMetersPerSecond;
+    lastCommandedSpeeds.vyMetersPerSecond = chassisSpeeds.vyMetersPerSecond;
+    lastCommandedSpeeds.omegaRadiansPerSecond = chassisSpeeds.omegaRadiansPerSecond;
+  }
+
+  /**
+   * Forgets the last commanded speeds, so the next command is not
+   * differentiated against a stale one
+   */
+  private void resetCommandedSpeeds() {
+    lastCommandedSpeeds.vxMetersPerSecond = 0.0;
+    lastCommandedSpeeds.vyMetersPerSecond = 0.0;
+    lastCommandedSpeeds.omegaRadiansPerSecond = 0.0;
+  }
+
+  /**
+   * Enables or disables second order kinematics. When enabled, module states
+   * are computed with the commanded acceleration and every module receives a
+   * steering velocity and drive acceleration feedforward
+   * 
+   * @param enabled True to use second order kinematics
+   */
+  public void setSecondOrderKinematics(boolean enabled) {
+    secondOrderKinematics = enabled ? new SecondOrderKinematics(andromedaProfile) : null;
+  }
+
+  /**
+   * Sets the {@link SwerveSetpointGenerator} used to limit the setpoints
+   * commanded by {@link #drive(ChassisSpeeds)}. Pass null to command the
+   * desired speeds directly
+   * 
+   * @param setpointGenerator The setpoint generator to use
+   */
+  public void setSetpointGenerator(SwerveSetpointGenerator setpointGenerator) {
+    this.setpointGenerator = setpointGenerator;
+
+    if (setpointGenerator != null) {
+      setpointGenerator.reset(getRobotRelativeChassisSpeeds(), getModuleStates());
+    }
+  }
+
   /**
    * Gets Gyro Angle clamped to 0 - 360 degrees
    * 
@@ -220,9 +645,9 @@ public class AndromedaSwerve extends SubsystemBase {
    */
   @AutoLogOutput(key = "Swerve/SwerveStates/Measured")
   private SwerveModuleState[] getModuleStates() {
-    SwerveModuleState[] states = new SwerveModuleState[4];
+    SwerveModuleState[] states = new SwerveModuleState[moduleCount];
 
-    for (int i = 0; i < 4; i++) {
+    for (int i = 0; i < moduleCount; i++) {
       states[i] = modules[i].getState();
     }
 
@@ -279,12 +704,12 @@ public class AndromedaSwerve extends SubsystemBase {
    * requested.
    */
   public void lock() {
-    Rotation2d[] headings = new Rotation2d[4];
-    for (int i = 0; i < 4; i++) {
+    Rotation2d[] headings = new Rotation2d[moduleCount];
+    for (int i = 0; i < moduleCount; i++) {
       headings[i] = andromedaProfile.moduleTranslations[i].getAngle();
     }
     SwerveModuleState[] states = andromedaProfile.swerveKinematics.toSwerveModuleStates(new ChassisSpeeds());
-    for (int i = 0; i < 4; i++) {
+    for (int i = 0; i < moduleCount; i++) {
       states[i].angle = headings[i];
     }
     setModuleStates(states);
@@ -292,13 +717,41 @@ public class AndromedaSwerve extends SubsystemBase {
     stop();
   }
 
+  /**
+   * Gets the amount of modules of the drivetrain
+   * 
+   * @return Module count
+   */
+  public int getModuleCount() {
+    return moduleCount;
+  }
+
   /**
    * Stops the swerve drive
    */
   public void stop() {
+    resetCommandedSpeeds();
     drive(new ChassisSpeeds());
   }
 
+  /**
+   * Builds the names used for each module
+   * 
+   * @param moduleCount Amount of modules
+   * @return Module names
+   */
+  private static String[] defaultModuleNames(int moduleCount) {
+    if (moduleCount == DEFAULT_MODULE_NAMES.length) {
+      return DEFAULT_MODULE_NAMES;
+    }
+
+    String[] names = new String[moduleCount];
+    for (int i = 0; i < moduleCount; i++) {
+      names[i] = "Module " + i;
+    }
+    return names;
+  }
+
   /* Characterization */
 
   public void runSwerveCharacterization(Measure<Voltage> volts) {
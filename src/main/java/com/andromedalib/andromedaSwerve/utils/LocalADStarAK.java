@@ -7,10 +7,15 @@ import com.pathplanner.lib.path.PathPoint;
 import com.pathplanner.lib.pathfinding.LocalADStar;
 import com.pathplanner.lib.pathfinding.Pathfinder;
 import edu.wpi.first.math.Pair;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import org.littletonrobotics.junction.LogTable;
 import org.littletonrobotics.junction.Logger;
 import org.littletonrobotics.junction.inputs.LoggableInputs;
@@ -19,7 +24,121 @@ import org.littletonrobotics.junction.inputs.LoggableInputs;
 // https://gist.github.com/mjansen4857/a8024b55eb427184dbd10ae8923bd57d
 
 public class LocalADStarAK implements Pathfinder {
+    /* Node size used to key the path cache until the navgrid is ready */
+    private static final double DEFAULT_NODE_SIZE_METERS = 0.2;
+    private static final int PATH_CACHE_SIZE = 32;
+    /* Only the positions of the field paths are kept, so any constraints work */
+    private static final PathConstraints FIELD_PATH_CONSTRAINTS = new PathConstraints(1.0, 1.0, 1.0, 1.0);
+    private static final GoalEndState FIELD_PATH_END_STATE = new GoalEndState(0.0, new Rotation2d());
+    /* Area the dynamic obstacles are quantized in, larger than the field */
+    private static final double OBSTACLE_GRID_LENGTH_METERS = 25.6;
+    private static final double OBSTACLE_GRID_WIDTH_METERS = 12.8;
+
     private final ADStarIO io = new ADStarIO();
+    private final NavGridField navGrid;
+
+    /* Paths by request, encoded like the logged path points */
+    private final Map<PathKey, double[]> pathCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PathKey, double[]> eldest) {
+            return size() > PATH_CACHE_SIZE;
+        }
+    };
+
+    /* Node size the cached paths were keyed with */
+    private double cacheNodeSizeMeters = DEFAULT_NODE_SIZE_METERS;
+
+    private Translation2d startPosition = null;
+    private Translation2d goalPosition = null;
+    /* Obstacles the current request was made with */
+    private List<Pair<Translation2d, Translation2d>> obstacles = Collections.emptyList();
+    private Translation2d obstacleRobotPosition = new Translation2d();
+    private BitSet obstacleCells = new BitSet();
+    /* Obstacle cells the pathfinder was last given */
+    private BitSet forwardedObstacleCells = new BitSet();
+
+    /* Latest obstacles, applied once the replan period allows it */
+    private List<Pair<Translation2d, Translation2d>> latestObstacles = Collections.emptyList();
+    private Translation2d latestObstacleRobotPosition = new Translation2d();
+    private BitSet latestObstacleCells = new BitSet();
+    private boolean obstacleUpdatePending = false;
+    private double lastObstacleUpdateSeconds = Double.NEGATIVE_INFINITY;
+    private double minReplanPeriodSeconds = 0.1;
+
+    /* Request of the last call, and request the pathfinder is working on */
+    private PathKey requestedKey = null;
+    private PathKey pendingKey = null;
+    /* Cached path of the current request that was not retrieved yet */
+    private double[] cachedPath = null;
+    /* Pathfinder path of the current request that was not retrieved yet */
+    private double[] pathfinderPath = null;
+    /* Request of the path that was last retrieved */
+    private PathKey currentPathKey = null;
+
+    /* Metrics */
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+    private long replans = 0;
+    private long keptPaths = 0;
+    private long stalePaths = 0;
+    private long skippedObstacleUpdates = 0;
+    private long deferredObstacleUpdates = 0;
+    private int lastChangedObstacleCells = 0;
+    private long replanStartMicros = -1;
+    private double lastReplanMS = 0.0;
+    private double totalReplanMS = 0.0;
+    private long timedReplans = 0;
+
+    /** Creates a pathfinder that only uses {@link LocalADStar} */
+    public LocalADStarAK() {
+        this(null);
+    }
+
+    /**
+     * Creates a pathfinder that solves requests on a {@link NavGridField} once it
+     * is ready, and with {@link LocalADStar} until then
+     *
+     * @param navGrid Field to pathfind on, e.g. from
+     *                {@link NavGridField#loadAsync(Translation2d...)}
+     */
+    public LocalADStarAK(NavGridField navGrid) {
+        this.navGrid = navGrid;
+    }
+
+    /**
+     * Sets the minimum time between replans caused by dynamic obstacles. Obstacle
+     * updates that come sooner are applied once it passes
+     *
+     * @param minReplanPeriodSeconds Minimum time between replans, 0.1 s by
+     *                               default
+     */
+    public void setMinReplanPeriod(double minReplanPeriodSeconds) {
+        this.minReplanPeriodSeconds = minReplanPeriodSeconds;
+    }
+
+    /**
+     * Ranks candidate goals by the cost of their paths, avoiding the latest
+     * dynamic obstacles. Every goal is evaluated by one search on the
+     * {@link NavGridField}, so it fits in a loop cycle. Until the field is ready,
+     * or without one, the goals are ranked by their straight line distance,
+     * since {@link LocalADStar} only solves one goal at a time
+     *
+     * @param start Start position, usually the robot position
+     * @param goals Candidate goals
+     * @return The goals from cheapest to most expensive, unreachable ones last
+     */
+    public List<NavGridField.GoalCost> rankGoals(Translation2d start, List<Translation2d> goals) {
+        if (navGrid != null && navGrid.isReady()) {
+            return navGrid.rankGoals(start, goals, latestObstacles);
+        }
+
+        List<NavGridField.GoalCost> ranked = new ArrayList<>();
+        for (int i = 0; i < goals.size(); i++) {
+            ranked.add(new NavGridField.GoalCost(i, goals.get(i), start.getDistance(goals.get(i))));
+        }
+        ranked.sort((a, b) -> Double.compare(a.costMeters, b.costMeters));
+        return ranked;
+    }
 
     /**
      * Get if a new path has been calculated since the last time a path was
@@ -29,11 +148,15 @@ public class LocalADStarAK implements Pathfinder {
      */
     @Override
     public boolean isNewPathAvailable() {
-        if (Logger.hasReplaySource()) {
-            io.updateIsNewPathAvailable();
+        if (!Logger.hasReplaySource()) {
+            applyObstacleUpdate();
+
+            pollPathfinder();
+            io.isNewPathAvailable = cachedPath != null || pathfinderPath != null;
         }
 
         Logger.processInputs("LocalADStarAK", io);
+        logMetrics();
 
         return io.isNewPathAvailable;
     }
@@ -48,8 +171,8 @@ public class LocalADStarAK implements Pathfinder {
      */
     @Override
     public PathPlannerPath getCurrentPath(PathConstraints constraints, GoalEndState goalEndState) {
-        if (Logger.hasReplaySource()) {
-            io.updateCurrentPathPoints(constraints, goalEndState);
+        if (!Logger.hasReplaySource()) {
+            updateCurrentPath();
         }
 
         Logger.processInputs("LocalADStarAK", io);
@@ -61,6 +184,77 @@ public class LocalADStarAK implements Pathfinder {
         return PathPlannerPath.fromPathPoints(io.currentPathPoints, constraints, goalEndState);
     }
 
+    /**
+     * Takes the cached path of the current request, or the path calculated by
+     * the pathfinder, which is then cached. The current path is kept if there is
+     * neither
+     */
+    private void updateCurrentPath() {
+        pollPathfinder();
+        if (cachedPath != null) {
+            io.setCurrentPath(cachedPath);
+            cachedPath = null;
+            currentPathKey = requestedKey;
+            return;
+        }
+        if (pathfinderPath == null) {
+            return;
+        }
+
+        io.setCurrentPath(pathfinderPath);
+        currentPathKey = null;
+        if (pendingKey != null && pendingKey.equals(requestedKey) && endpointsMatch(pathfinderPath)) {
+            pathCache.put(pendingKey, pathfinderPath);
+            currentPathKey = pendingKey;
+            if (replanStartMicros >= 0) {
+                recordReplanTime(replanStartMicros);
+                replanStartMicros = -1;
+            }
+        }
+        pathfinderPath = null;
+    }
+
+    /**
+     * Takes a new path out of the pathfinder. The pathfinder may still return a
+     * path of an older request, which is dropped, as are its paths while a cached
+     * path is served
+     */
+    private void pollPathfinder() {
+        if (pathfinderPath != null || !io.adStar.isNewPathAvailable()) {
+            return;
+        }
+
+        // Only the positions are kept, so the constraints don't matter
+        PathPlannerPath path = io.adStar.getCurrentPath(FIELD_PATH_CONSTRAINTS, FIELD_PATH_END_STATE);
+        double[] encoded = path != null ? ADStarIO.encode(path.getAllPathPoints()) : new double[0];
+
+        // An empty path means the current request has no path
+        boolean current = pendingKey == null
+                || (pendingKey.equals(requestedKey) && (encoded.length == 0 || endpointsMatch(encoded)));
+        if (cachedPath == null && current) {
+            pathfinderPath = encoded;
+        } else {
+            stalePaths++;
+        }
+    }
+
+    /**
+     * Checks that a path goes from the requested start to the requested goal
+     *
+     * @param encoded Encoded path points
+     * @return True if both ends are within a cell diagonal of the request
+     */
+    private boolean endpointsMatch(double[] encoded) {
+        if (encoded.length < 4 || startPosition == null || goalPosition == null) {
+            return false;
+        }
+        // The pathfinder may move an end to a neighboring node
+        double tolerance = getNodeSizeMeters() * Math.sqrt(2.0);
+        int last = encoded.length - 2;
+        return startPosition.getDistance(new Translation2d(encoded[0], encoded[1])) <= tolerance
+                && goalPosition.getDistance(new Translation2d(encoded[last], encoded[last + 1])) <= tolerance;
+    }
+
     /**
      * Set the start position to pathfind from
      *
@@ -70,8 +264,9 @@ public class LocalADStarAK implements Pathfinder {
      */
     @Override
     public void setStartPosition(Translation2d startPosition) {
-        if (Logger.hasReplaySource()) {
-            io.adStar.setStartPosition(startPosition);
+        if (!Logger.hasReplaySource()) {
+            this.startPosition = startPosition;
+            updateRequest();
         }
     }
 
@@ -84,8 +279,9 @@ public class LocalADStarAK implements Pathfinder {
      */
     @Override
     public void setGoalPosition(Translation2d goalPosition) {
-        if (Logger.hasReplaySource()) {
-            io.adStar.setGoalPosition(goalPosition);
+        if (!Logger.hasReplaySource()) {
+            this.goalPosition = goalPosition;
+            updateRequest();
         }
     }
 
@@ -102,27 +298,285 @@ public class LocalADStarAK implements Pathfinder {
     @Override
     public void setDynamicObstacles(
             List<Pair<Translation2d, Translation2d>> obs, Translation2d currentRobotPos) {
-        io.adStar.setDynamicObstacles(obs, currentRobotPos);
+        if (Logger.hasReplaySource()) {
+            return;
+        }
+
+        // Obstacles that moved within their cells don't change the path
+        double nodeSize = getNodeSizeMeters();
+        BitSet cells = NavGridField.rasterize(obs, nodeSize, obstacleGridWidth(nodeSize),
+                obstacleGridHeight(nodeSize));
+        latestObstacles = obs;
+        latestObstacleRobotPosition = currentRobotPos;
+        if (cells.equals(latestObstacleCells)) {
+            skippedObstacleUpdates++;
+            return;
+        }
+        latestObstacleCells = cells;
+        obstacleUpdatePending = true;
+        applyObstacleUpdate();
+        if (obstacleUpdatePending) {
+            deferredObstacleUpdates++;
+        }
+    }
+
+    /**
+     * Applies the latest obstacles once the replan period passed. The current
+     * path is kept if obstacles were only added away from it, since it is still
+     * the cheapest one
+     */
+    private void applyObstacleUpdate() {
+        if (!obstacleUpdatePending) {
+            return;
+        }
+        double now = Logger.getTimestamp() / 1e6;
+        if (now - lastObstacleUpdateSeconds < minReplanPeriodSeconds) {
+            return;
+        }
+        obstacleUpdatePending = false;
+
+        BitSet added = (BitSet) latestObstacleCells.clone();
+        added.andNot(obstacleCells);
+        BitSet removed = (BitSet) obstacleCells.clone();
+        removed.andNot(latestObstacleCells);
+        lastChangedObstacleCells = added.cardinality() + removed.cardinality();
+
+        obstacles = latestObstacles;
+        obstacleRobotPosition = latestObstacleRobotPosition;
+        if (lastChangedObstacleCells == 0) {
+            return;
+        }
+        lastObstacleUpdateSeconds = now;
+        obstacleCells = latestObstacleCells;
+
+        double[] path = cachedPath;
+        if (path == null && requestedKey != null && requestedKey.equals(currentPathKey)) {
+            path = io.currentPathPointsLogged;
+        }
+        if (removed.isEmpty() && requestedKey != null && path != null && !crossesCells(path, added)) {
+            PathKey key = requestedKey.withObstacleCells(obstacleCells);
+            pathCache.put(key, path);
+            if (requestedKey.equals(currentPathKey)) {
+                currentPathKey = key;
+            }
+            requestedKey = key;
+            keptPaths++;
+            return;
+        }
+        updateRequest();
+    }
+
+    /**
+     * Checks if a path goes through any of the given obstacle cells
+     *
+     * @param encoded Encoded path points
+     * @param cells   Cells of the obstacle grid
+     * @return True if a point of the path or the line between two of them is in
+     *         one of the cells
+     */
+    private boolean crossesCells(double[] encoded, BitSet cells) {
+        double nodeSize = getNodeSizeMeters();
+        int width = obstacleGridWidth(nodeSize);
+        int height = obstacleGridHeight(nodeSize);
+        for (int i = 0; i + 1 < encoded.length; i += 2) {
+            double x0 = encoded[Math.max(0, i - 2)];
+            double y0 = encoded[Math.max(1, i - 1)];
+            double dx = encoded[i] - x0;
+            double dy = encoded[i + 1] - y0;
+            int samples = (int) Math.ceil(2.0 * Math.max(Math.abs(dx), Math.abs(dy)) / nodeSize);
+            for (int j = 0; j <= samples; j++) {
+                double t = samples == 0 ? 1.0 : (double) j / samples;
+                int x = toCell(x0 + dx * t, nodeSize);
+                int y = toCell(y0 + dy * t, nodeSize);
+                if (x >= 0 && y >= 0 && x < width && y < height && cells.get(y * width + x)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Serves the request from the cache, or passes it to the pathfinder if it
+     * was not cached
+     */
+    private void updateRequest() {
+        if (startPosition == null || goalPosition == null) {
+            // Requests without both ends are not cached
+            requestedKey = null;
+            pendingKey = null;
+            cachedPath = null;
+            pathfinderPath = null;
+            forwardRequest();
+            return;
+        }
+
+        double nodeSize = getNodeSizeMeters();
+        if (nodeSize != cacheNodeSizeMeters) {
+            // Keys of another node size point to other cells
+            pathCache.clear();
+            cacheNodeSizeMeters = nodeSize;
+        }
+        int startX = toCell(startPosition.getX(), nodeSize);
+        int startY = toCell(startPosition.getY(), nodeSize);
+        int goalX = toCell(goalPosition.getX(), nodeSize);
+        int goalY = toCell(goalPosition.getY(), nodeSize);
+        if (requestedKey != null && requestedKey.matches(startX, startY, goalX, goalY, obstacleCells)) {
+            return;
+        }
+        PathKey key = new PathKey(startX, startY, goalX, goalY, obstacleCells);
+        requestedKey = key;
+        pathfinderPath = null;
+
+        cachedPath = pathCache.get(key);
+        if (cachedPath != null) {
+            cacheHits++;
+            return;
+        }
+        cacheMisses++;
+
+        replans++;
+
+        if (navGrid != null && navGrid.isReady()) {
+            long start = Logger.getRealTimestamp();
+            PathPlannerPath path = navGrid.findPath(startPosition, goalPosition, obstacles,
+                    FIELD_PATH_CONSTRAINTS, FIELD_PATH_END_STATE);
+            if (path != null) {
+                cachedPath = ADStarIO.encode(path.getAllPathPoints());
+                pathCache.put(key, cachedPath);
+                recordReplanTime(start);
+                return;
+            }
+        }
+
+        pendingKey = key;
+        replanStartMicros = Logger.getRealTimestamp();
+        forwardRequest();
+    }
+
+    private void recordReplanTime(long startMicros) {
+        lastReplanMS = (Logger.getRealTimestamp() - startMicros) / 1000.0;
+        totalReplanMS += lastReplanMS;
+        timedReplans++;
+    }
+
+    /** Logs the cache and replan metrics under {@code LocalADStarAK/} */
+    private void logMetrics() {
+        Logger.recordOutput("LocalADStarAK/CacheHits", cacheHits);
+        Logger.recordOutput("LocalADStarAK/CacheMisses", cacheMisses);
+        Logger.recordOutput("LocalADStarAK/Replans", replans);
+        Logger.recordOutput("LocalADStarAK/KeptPaths", keptPaths);
+        Logger.recordOutput("LocalADStarAK/StalePaths", stalePaths);
+        Logger.recordOutput("LocalADStarAK/SkippedObstacleUpdates", skippedObstacleUpdates);
+        Logger.recordOutput("LocalADStarAK/DeferredObstacleUpdates", deferredObstacleUpdates);
+        Logger.recordOutput("LocalADStarAK/ChangedObstacleCells", lastChangedObstacleCells);
+        Logger.recordOutput("LocalADStarAK/LastReplanMS", lastReplanMS);
+        Logger.recordOutput("LocalADStarAK/MeanReplanMS", timedReplans == 0 ? 0.0 : totalReplanMS / timedReplans);
+    }
+
+    /**
+     * Passes the current request to the pathfinder. Obstacles are only passed
+     * when they changed, since the pathfinder replans from scratch with them
+     */
+    private void forwardRequest() {
+        if (startPosition != null) {
+            io.adStar.setStartPosition(startPosition);
+        }
+        if (goalPosition != null) {
+            io.adStar.setGoalPosition(goalPosition);
+        }
+        if (!obstacleCells.equals(forwardedObstacleCells)) {
+            io.adStar.setDynamicObstacles(obstacles, startPosition != null ? startPosition : obstacleRobotPosition);
+            forwardedObstacleCells = obstacleCells;
+        }
+    }
+
+    /**
+     * Gets the size of the cells requests and obstacles are quantized to, the
+     * node size of the navgrid once it is ready
+     *
+     * @return Cell size in meters
+     */
+    private double getNodeSizeMeters() {
+        return navGrid != null && navGrid.isReady() ? navGrid.getNodeSizeMeters() : DEFAULT_NODE_SIZE_METERS;
+    }
+
+    private static int obstacleGridWidth(double nodeSize) {
+        return (int) Math.ceil(OBSTACLE_GRID_LENGTH_METERS / nodeSize);
+    }
+
+    private static int obstacleGridHeight(double nodeSize) {
+        return (int) Math.ceil(OBSTACLE_GRID_WIDTH_METERS / nodeSize);
+    }
+
+    private static int toCell(double meters, double nodeSize) {
+        return (int) Math.floor(meters / nodeSize);
+    }
+
+    /** Start cell, goal cell and obstacle cells of a request */
+    private static final class PathKey {
+        private final int startX;
+        private final int startY;
+        private final int goalX;
+        private final int goalY;
+        private final BitSet obstacleCells;
+        private final int hash;
+
+        private PathKey(int startX, int startY, int goalX, int goalY, BitSet obstacleCells) {
+            this.startX = startX;
+            this.startY = startY;
+            this.goalX = goalX;
+            this.goalY = goalY;
+            this.obstacleCells = (BitSet) obstacleCells.clone();
+            this.hash = Arrays.hashCode(new int[] { startX, startY, goalX, goalY, obstacleCells.hashCode() });
+        }
+
+        /**
+         * Checks if this key is the one of a request, without building a key
+         *
+         * @param startX        Start cell column
+         * @param startY        Start cell row
+         * @param goalX         Goal cell column
+         * @param goalY         Goal cell row
+         * @param obstacleCells Obstacle cells of the request
+         * @return True if the cells and obstacles are the same
+         */
+        private boolean matches(int startX, int startY, int goalX, int goalY, BitSet obstacleCells) {
+            return this.startX == startX && this.startY == startY && this.goalX == goalX && this.goalY == goalY
+                    && this.obstacleCells.equals(obstacleCells);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PathKey)) {
+                return false;
+            }
+            PathKey other = (PathKey) obj;
+            return hash == other.hash && matches(other.startX, other.startY, other.goalX, other.goalY,
+                    other.obstacleCells);
+        }
+
+        private PathKey withObstacleCells(BitSet obstacleCells) {
+            return new PathKey(startX, startY, goalX, goalY, obstacleCells);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 
     private static class ADStarIO implements LoggableInputs {
         public LocalADStar adStar = new LocalADStar();
         public boolean isNewPathAvailable = false;
         public List<PathPoint> currentPathPoints = Collections.emptyList();
+        /* Logged form of the current path, only rebuilt when the path changes */
+        public double[] currentPathPointsLogged = new double[0];
 
         @Override
         public void toLog(LogTable table) {
             table.put("IsNewPathAvailable", isNewPathAvailable);
-
-            double[] pointsLogged = new double[currentPathPoints.size() * 2];
-            int idx = 0;
-            for (PathPoint point : currentPathPoints) {
-                pointsLogged[idx] = point.position.getX();
-                pointsLogged[idx + 1] = point.position.getY();
-                idx += 2;
-            }
-
-            table.put("CurrentPathPoints", pointsLogged);
+            table.put("CurrentPathPoints", currentPathPointsLogged);
         }
 
         @Override
@@ -130,28 +584,43 @@ public class LocalADStarAK implements Pathfinder {
             isNewPathAvailable = table.get("IsNewPathAvailable", false);
 
             double[] pointsLogged = table.get("CurrentPathPoints", new double[0]);
-
-            List<PathPoint> pathPoints = new ArrayList<>();
-            for (int i = 0; i < pointsLogged.length; i += 2) {
-                pathPoints.add(
-                        new PathPoint(new Translation2d(pointsLogged[i], pointsLogged[i + 1]), null));
+            if (!Arrays.equals(pointsLogged, currentPathPointsLogged)) {
+                setCurrentPath(pointsLogged);
             }
-
-            currentPathPoints = pathPoints;
         }
 
-        public void updateIsNewPathAvailable() {
-            isNewPathAvailable = adStar.isNewPathAvailable();
+        /**
+         * Sets the current path. Live paths keep only their positions, so they are
+         * identical to the replayed ones
+         *
+         * @param pointsLogged Encoded path points
+         */
+        public void setCurrentPath(double[] pointsLogged) {
+            if (pointsLogged == currentPathPointsLogged) {
+                return;
+            }
+            currentPathPointsLogged = pointsLogged;
+            currentPathPoints = decode(pointsLogged);
         }
 
-        public void updateCurrentPathPoints(PathConstraints constraints, GoalEndState goalEndState) {
-            PathPlannerPath currentPath = adStar.getCurrentPath(constraints, goalEndState);
+        public static double[] encode(List<PathPoint> pathPoints) {
+            double[] pointsLogged = new double[pathPoints.size() * 2];
+            int idx = 0;
+            for (PathPoint point : pathPoints) {
+                pointsLogged[idx] = point.position.getX();
+                pointsLogged[idx + 1] = point.position.getY();
+                idx += 2;
+            }
+            return pointsLogged;
+        }
 
-            if (currentPath != null) {
-                currentPathPoints = currentPath.getAllPathPoints();
-            } else {
-                currentPathPoints = Collections.emptyList();
+        public static List<PathPoint> decode(double[] pointsLogged) {
+            List<PathPoint> pathPoints = new ArrayList<>();
+            for (int i = 0; i < pointsLogged.length; i += 2) {
+                pathPoints.add(
+                        new PathPoint(new Translation2d(pointsLogged[i], pointsLogged[i + 1]), null));
             }
+            return pathPoints;
         }
     }
 }
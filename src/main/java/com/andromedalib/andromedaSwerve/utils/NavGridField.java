@@ -0,0 +1,921 @@
+package com.andromedalib.andromedaSwerve.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+
+import edu.wpi.first.math.Pair;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * Pathfinds on PathPlanner's navgrid with tables that are computed once.
+ *
+ * <p>
+ * {@link #loadAsync(Translation2d...)} reads {@code pathplanner/navgrid.json}
+ * from the deploy directory on a background thread and computes:
+ * <ul>
+ * <li>The distance from every node to the nearest obstacle, used to keep paths
+ * away from walls</li>
+ * <li>The cost from a few landmarks to every node. Their differences give a
+ * lower bound of the cost between any two nodes (ALT), which guides A* much
+ * better than the straight line distance</li>
+ * <li>The cost from every node to each of the given goals, usually the scoring
+ * locations. Paths to these goals are read from the table without any
+ * search</li>
+ * </ul>
+ * Paths are empty until {@link #isReady()} is true.
+ *
+ * <p>
+ * Dynamic obstacles only block the nodes they cover. The tables are not
+ * recomputed for them: landmark bounds stay valid when nodes are blocked, and
+ * a goal table path is still the cheapest one if it does not cross a blocked
+ * node. Otherwise that path is searched with A*.
+ */
+public class NavGridField {
+    private static final double SQRT_2 = Math.sqrt(2.0);
+    private static final int[] DX = { 1, -1, 0, 0, 1, 1, -1, -1 };
+    private static final int[] DY = { 0, 0, 1, -1, 1, -1, 1, -1 };
+    private static final double[] STEP = { 1.0, 1.0, 1.0, 1.0, SQRT_2, SQRT_2, SQRT_2, SQRT_2 };
+
+    public static final int DEFAULT_LANDMARK_COUNT = 8;
+    private static final int GOAL_FIELD_CACHE_SIZE = 16;
+
+    /* Nodes closer than this to an obstacle cost more to cross */
+    private static final double NEAR_OBSTACLE_METERS = 0.4;
+    private static final double NEAR_OBSTACLE_PENALTY = 0.5;
+
+    private int width;
+    private int height;
+    private double nodeSizeMeters;
+    private boolean[] obstacles;
+
+    private float[] clearance;
+    private float[] stepCostScale;
+    private float[][] landmarkCosts = new float[0][];
+    /* Tables of the goals passed to precompute, which are never evicted */
+    private final Map<Integer, float[]> startupGoalFields = Collections.synchronizedMap(new HashMap<>());
+    /* Tables of the goals added later, the least recently used are evicted */
+    private final Map<Integer, float[]> goalFields = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, float[]> eldest) {
+                    return size() > GOAL_FIELD_CACHE_SIZE;
+                }
+            });
+
+    private volatile boolean ready = false;
+    private volatile int lastExpandedNodes = 0;
+
+    private NavGridField() {
+    }
+
+    /**
+     * Creates a field from a grid. Call {@link #precompute(int, Translation2d...)}
+     * before pathfinding
+     *
+     * @param grid           Obstacles, indexed as {@code grid[row][column]}, row 0
+     *                       being y = 0
+     * @param nodeSizeMeters Side of a node
+     */
+    public NavGridField(boolean[][] grid, double nodeSizeMeters) {
+        setGrid(grid, nodeSizeMeters);
+    }
+
+    /**
+     * Loads the deployed navgrid and computes the tables on a background thread
+     *
+     * @param goals Goals whose paths are computed ahead of time
+     * @return Field that becomes ready once loaded
+     */
+    public static NavGridField loadAsync(Translation2d... goals) {
+        NavGridField field = new NavGridField();
+        File file = new File(Filesystem.getDeployDirectory(), "pathplanner/navgrid.json");
+
+        Thread thread = new Thread(() -> {
+            try {
+                JsonNode json = new ObjectMapper().readTree(file);
+                JsonNode rows = json.get("grid");
+                boolean[][] grid = new boolean[rows.size()][];
+                for (int row = 0; row < rows.size(); row++) {
+                    grid[row] = new boolean[rows.get(row).size()];
+                    for (int col = 0; col < grid[row].length; col++) {
+                        grid[row][col] = rows.get(row).get(col).asBoolean();
+                    }
+                }
+                field.setGrid(grid, json.get("nodeSizeMeters").asDouble());
+                field.precompute(DEFAULT_LANDMARK_COUNT, goals);
+            } catch (IOException | RuntimeException e) {
+                DriverStation.reportError("Failed to load navgrid: " + e.getMessage(), e.getStackTrace());
+            }
+        }, "NavGridField");
+        thread.setDaemon(true);
+        thread.start();
+
+        return field;
+    }
+
+    private void setGrid(boolean[][] grid, double nodeSizeMeters) {
+        this.height = grid.length;
+        this.width = height == 0 ? 0 : grid[0].length;
+        this.nodeSizeMeters = nodeSizeMeters;
+        this.obstacles = new boolean[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                obstacles[y * width + x] = grid[y][x];
+            }
+        }
+    }
+
+    /**
+     * Computes the distance transform, the landmark tables and the goal tables.
+     * Takes a few milliseconds per table on a full field
+     *
+     * @param landmarkCount Amount of landmarks, 0 to guide the search by the
+     *                      straight line distance only
+     * @param goals         Goals whose paths are computed ahead of time
+     */
+    public void precompute(int landmarkCount, Translation2d... goals) {
+        computeClearance();
+
+        float[][] costs = new float[landmarkCount][];
+        List<Integer> landmarks = selectLandmarks(landmarkCount);
+        for (int i = 0; i < landmarks.size(); i++) {
+            costs[i] = dijkstra(landmarks.get(i));
+        }
+        landmarkCosts = Arrays.copyOf(costs, landmarks.size());
+
+        for (Translation2d goal : goals) {
+            int node = nearestFreeNode(goal);
+            if (node >= 0 && !startupGoalFields.containsKey(node)) {
+                startupGoalFields.put(node, dijkstra(node));
+            }
+        }
+        ready = true;
+    }
+
+    /**
+     * Computes the table of a goal, so paths to it are read without searching.
+     * Only the tables of the latest goals added this way are kept, unlike the
+     * ones of the goals passed to {@link #precompute(int, Translation2d...)}
+     *
+     * @param goal Goal position
+     */
+    public void precomputeGoal(Translation2d goal) {
+        int node = nearestFreeNode(goal);
+        if (node >= 0 && getGoalField(node) == null) {
+            goalFields.put(node, dijkstra(node));
+        }
+    }
+
+    /**
+     * Gets the table of a goal node
+     *
+     * @return The table, or null if it was not computed
+     */
+    private float[] getGoalField(int node) {
+        float[] goalField = startupGoalFields.get(node);
+        return goalField != null ? goalField : goalFields.get(node);
+    }
+
+    /**
+     * Two pass chamfer distance transform, in meters, and the step costs that
+     * follow from it
+     */
+    private void computeClearance() {
+        int count = width * height;
+        float[] dist = new float[count];
+        for (int i = 0; i < count; i++) {
+            dist[i] = obstacles[i] ? 0.0f : Float.MAX_VALUE;
+        }
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = y * width + x;
+                if (x > 0) {
+                    dist[i] = Math.min(dist[i], dist[i - 1] + 1.0f);
+                }
+                if (y > 0) {
+                    dist[i] = Math.min(dist[i], dist[i - width] + 1.0f);
+                    if (x > 0) {
+                        dist[i] = Math.min(dist[i], dist[i - width - 1] + (float) SQRT_2);
+                    }
+                    if (x < width - 1) {
+                        dist[i] = Math.min(dist[i], dist[i - width + 1] + (float) SQRT_2);
+                    }
+                }
+            }
+        }
+        for (int y = height - 1; y >= 0; y--) {
+            for (int x = width - 1; x >= 0; x--) {
+                int i = y * width + x;
+                if (x < width - 1) {
+                    dist[i] = Math.min(dist[i], dist[i + 1] + 1.0f);
+                }
+                if (y < height - 1) {
+                    dist[i] = Math.min(dist[i], dist[i + width] + 1.0f);
+                    if (x < width - 1) {
+                        dist[i] = Math.min(dist[i], dist[i + width + 1] + (float) SQRT_2);
+                    }
+                    if (x > 0) {
+                        dist[i] = Math.min(dist[i], dist[i + width - 1] + (float) SQRT_2);
+                    }
+                }
+            }
+        }
+
+        float[] scale = new float[count];
+        for (int i = 0; i < count; i++) {
+            dist[i] = dist[i] == Float.MAX_VALUE ? Float.MAX_VALUE : dist[i] * (float) nodeSizeMeters;
+            double nearness = Math.max(0.0, 1.0 - dist[i] / NEAR_OBSTACLE_METERS);
+            scale[i] = (float) (nodeSizeMeters * (1.0 + NEAR_OBSTACLE_PENALTY * nearness));
+        }
+        clearance = dist;
+        stepCostScale = scale;
+    }
+
+    /**
+     * Picks landmarks spread over the free nodes, each one the farthest from the
+     * ones already picked
+     */
+    private List<Integer> selectLandmarks(int landmarkCount) {
+        List<Integer> landmarks = new ArrayList<>();
+        int first = -1;
+        for (int i = 0; i < obstacles.length && first < 0; i++) {
+            if (!obstacles[i]) {
+                first = i;
+            }
+        }
+        if (first < 0 || landmarkCount <= 0) {
+            return landmarks;
+        }
+
+        float[] nearest = dijkstra(first);
+        int candidate = argMax(nearest);
+        while (landmarks.size() < landmarkCount && candidate >= 0) {
+            landmarks.add(candidate);
+            float[] costs = dijkstra(candidate);
+            for (int i = 0; i < nearest.length; i++) {
+                nearest[i] = landmarks.size() == 1 ? costs[i] : Math.min(nearest[i], costs[i]);
+            }
+            candidate = argMax(nearest);
+        }
+        return landmarks;
+    }
+
+    private static int argMax(float[] costs) {
+        int best = -1;
+        for (int i = 0; i < costs.length; i++) {
+            if (costs[i] != Float.MAX_VALUE && costs[i] > 0.0f && (best < 0 || costs[i] > costs[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Computes the cost from a node to every other node
+     *
+     * @param source Source node
+     * @return Costs, {@link Float#MAX_VALUE} for unreachable nodes
+     */
+    private float[] dijkstra(int source) {
+        float[] costs = new float[width * height];
+        Arrays.fill(costs, Float.MAX_VALUE);
+        NodeHeap open = new NodeHeap(width * height);
+
+        costs[source] = 0.0f;
+        open.push(source, 0.0f);
+        while (!open.isEmpty()) {
+            float cost = open.peekPriority();
+            int node = open.pop();
+            if (cost > costs[node]) {
+                continue;
+            }
+            for (int d = 0; d < 8; d++) {
+                int next = neighbor(node, d, null);
+                if (next < 0) {
+                    continue;
+                }
+                float nextCost = cost + stepCost(node, next, d);
+                if (nextCost < costs[next]) {
+                    costs[next] = nextCost;
+                    open.push(next, nextCost);
+                }
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Gets a neighbor of a node. Diagonal moves can't cut the corner of an
+     * obstacle
+     *
+     * @param blocked Nodes blocked by dynamic obstacles, or null
+     * @return The neighbor, or -1 if it is out of the grid or an obstacle
+     */
+    private int neighbor(int node, int direction, BitSet blocked) {
+        int x = node % width + DX[direction];
+        int y = node / width + DY[direction];
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return -1;
+        }
+        int next = y * width + x;
+        if (isBlocked(next, blocked)) {
+            return -1;
+        }
+        if (direction >= 4
+                && (isBlocked(y * width + node % width, blocked) || isBlocked((node / width) * width + x, blocked))) {
+            return -1;
+        }
+        return next;
+    }
+
+    private boolean isBlocked(int node, BitSet blocked) {
+        return obstacles[node] || (blocked != null && blocked.get(node));
+    }
+
+    /* Symmetric, so the landmark tables hold in both directions */
+    private float stepCost(int node, int next, int direction) {
+        return (float) STEP[direction] * 0.5f * (stepCostScale[node] + stepCostScale[next]);
+    }
+
+    /**
+     * Lower bound of the cost between two nodes
+     */
+    private float heuristic(int node, int goal) {
+        int dx = Math.abs(node % width - goal % width);
+        int dy = Math.abs(node / width - goal / width);
+        float best = (float) ((Math.max(dx, dy) + (SQRT_2 - 1.0) * Math.min(dx, dy)) * nodeSizeMeters);
+
+        for (float[] costs : landmarkCosts) {
+            float toNode = costs[node];
+            float toGoal = costs[goal];
+            if (toNode != Float.MAX_VALUE && toGoal != Float.MAX_VALUE) {
+                best = Math.max(best, Math.abs(toGoal - toNode));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds the nodes of the cheapest path
+     *
+     * @param blocked Nodes blocked by dynamic obstacles, or null
+     * @return Nodes from start to goal, empty if there is none
+     */
+    private List<Integer> searchNodes(int start, int goal, BitSet blocked) {
+        float[] goalField = getGoalField(goal);
+        if (goalField != null) {
+            List<Integer> nodes = descendGoalField(start, goal, goalField, blocked);
+            if (nodes != null) {
+                return nodes;
+            }
+        }
+
+        int count = width * height;
+        float[] costs = new float[count];
+        int[] parents = new int[count];
+        boolean[] closed = new boolean[count];
+        Arrays.fill(costs, Float.MAX_VALUE);
+        NodeHeap open = new NodeHeap(count);
+        int expanded = 0;
+
+        costs[start] = 0.0f;
+        parents[start] = -1;
+        open.push(start, heuristic(start, goal));
+        while (!open.isEmpty()) {
+            int node = open.pop();
+            if (closed[node]) {
+                continue;
+            }
+            closed[node] = true;
+            expanded++;
+            if (node == goal) {
+                lastExpandedNodes = expanded;
+                return tracePath(parents, goal);
+            }
+            for (int d = 0; d < 8; d++) {
+                int next = neighbor(node, d, blocked);
+                if (next < 0 || closed[next]) {
+                    continue;
+                }
+                float nextCost = costs[node] + stepCost(node, next, d);
+                if (nextCost < costs[next]) {
+                    costs[next] = nextCost;
+                    parents[next] = node;
+                    open.push(next, nextCost + heuristic(next, goal));
+                }
+            }
+        }
+        lastExpandedNodes = expanded;
+        return Collections.emptyList();
+    }
+
+    /**
+     * Follows a goal table downhill, which is the cheapest path
+     *
+     * @return The nodes, or null if every cheapest path crosses a blocked node
+     */
+    private List<Integer> descendGoalField(int start, int goal, float[] goalField, BitSet blocked) {
+        if (goalField[start] == Float.MAX_VALUE) {
+            lastExpandedNodes = 0;
+            return Collections.emptyList();
+        }
+
+        List<Integer> nodes = new ArrayList<>();
+        int node = start;
+        nodes.add(node);
+        while (node != goal) {
+            int best = -1;
+            float bestCost = goalField[node];
+            for (int d = 0; d < 8; d++) {
+                int next = neighbor(node, d, blocked);
+                if (next >= 0 && goalField[next] + stepCost(node, next, d) <= bestCost + 1e-4f
+                        && goalField[next] < goalField[node]) {
+                    best = next;
+                    bestCost = goalField[next] + stepCost(node, next, d);
+                }
+            }
+            if (best < 0) {
+                if (blocked != null) {
+                    return null;
+                }
+                break;
+            }
+            node = best;
+            nodes.add(node);
+        }
+        lastExpandedNodes = nodes.size();
+        return nodes;
+    }
+
+    private static List<Integer> tracePath(int[] parents, int goal) {
+        List<Integer> nodes = new ArrayList<>();
+        for (int node = goal; node >= 0; node = parents[node]) {
+            nodes.add(node);
+        }
+        Collections.reverse(nodes);
+        return nodes;
+    }
+
+    /**
+     * Finds the cheapest path between two positions. Positions inside obstacles
+     * or outside the grid are moved to the center of the nearest free node
+     *
+     * @param start Start position
+     * @param goal  Goal position
+     * @return Waypoints from start to goal with the unneeded corners removed,
+     *         empty if the field is not ready or there is no path
+     */
+    public List<Translation2d> findPath(Translation2d start, Translation2d goal) {
+        return findPath(start, goal, Collections.emptyList());
+    }
+
+    /**
+     * Finds the cheapest path between two positions around dynamic obstacles
+     *
+     * @param start            Start position
+     * @param goal             Goal position
+     * @param dynamicObstacles Opposite corners of the obstacle bounding boxes
+     * @return Waypoints from start to goal with the unneeded corners removed,
+     *         empty if the field is not ready or there is no path
+     */
+    public List<Translation2d> findPath(Translation2d start, Translation2d goal,
+            List<Pair<Translation2d, Translation2d>> dynamicObstacles) {
+        if (!ready) {
+            return Collections.emptyList();
+        }
+        int startNode = nearestFreeNode(start);
+        int goalNode = nearestFreeNode(goal);
+        if (startNode < 0 || goalNode < 0) {
+            return Collections.emptyList();
+        }
+
+        BitSet blocked = dynamicObstacles.isEmpty() ? null : getObstacleNodes(dynamicObstacles);
+        List<Integer> nodes = searchNodes(startNode, goalNode, blocked);
+        if (nodes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Only the nodes where the path turns are candidates for the waypoints
+        List<Translation2d> points = new ArrayList<>();
+        points.add(nodeAt(start) == startNode ? start : nodeCenter(startNode));
+        for (int i = 1; i < nodes.size() - 1; i++) {
+            int previous = nodes.get(i - 1);
+            int node = nodes.get(i);
+            int next = nodes.get(i + 1);
+            if (node - previous != next - node) {
+                points.add(nodeCenter(node));
+            }
+        }
+        points.add(nodeAt(goal) == goalNode ? goal : nodeCenter(goalNode));
+        return simplify(points, blocked);
+    }
+
+    /**
+     * Finds the cheapest path between two positions
+     *
+     * @param start        Start position
+     * @param goal         Goal position
+     * @param constraints  Constraints of the path
+     * @param goalEndState End state of the path
+     * @return The path, or null if the field is not ready or there is no path
+     */
+    public PathPlannerPath findPath(Translation2d start, Translation2d goal, PathConstraints constraints,
+            GoalEndState goalEndState) {
+        return findPath(start, goal, Collections.emptyList(), constraints, goalEndState);
+    }
+
+    /**
+     * Finds the cheapest path between two positions around dynamic obstacles
+     *
+     * @param start            Start position
+     * @param goal             Goal position
+     * @param dynamicObstacles Opposite corners of the obstacle bounding boxes
+     * @param constraints      Constraints of the path
+     * @param goalEndState     End state of the path
+     * @return The path, or null if the field is not ready or there is no path
+     */
+    public PathPlannerPath findPath(Translation2d start, Translation2d goal,
+            List<Pair<Translation2d, Translation2d>> dynamicObstacles, PathConstraints constraints,
+            GoalEndState goalEndState) {
+        List<Translation2d> points = findPath(start, goal, dynamicObstacles);
+        if (points.size() < 2) {
+            return null;
+        }
+
+        List<Pose2d> poses = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) {
+            Translation2d from = points.get(Math.max(0, i - 1));
+            Translation2d to = points.get(Math.min(points.size() - 1, i + 1));
+            poses.add(new Pose2d(points.get(i), to.minus(from).getAngle()));
+        }
+        return new PathPlannerPath(PathPlannerPath.bezierFromPoses(poses), constraints, goalEndState);
+    }
+
+    /**
+     * Removes the waypoints that can be skipped in a straight line
+     */
+    private List<Translation2d> simplify(List<Translation2d> points, BitSet blocked) {
+        List<Translation2d> simplified = new ArrayList<>();
+        int current = 0;
+        simplified.add(points.get(0));
+        while (current < points.size() - 1) {
+            int next = current + 1;
+            while (next < points.size() - 1 && isLineFree(points.get(current), points.get(next + 1), blocked)) {
+                next++;
+            }
+            simplified.add(points.get(next));
+            current = next;
+        }
+        return simplified;
+    }
+
+    /**
+     * Checks that a straight line only crosses free nodes that aren't close to an
+     * obstacle
+     */
+    private boolean isLineFree(Translation2d from, Translation2d to, BitSet blocked) {
+        double x0 = from.getX() / nodeSizeMeters;
+        double y0 = from.getY() / nodeSizeMeters;
+        double dx = to.getX() / nodeSizeMeters - x0;
+        double dy = to.getY() / nodeSizeMeters - y0;
+        int samples = (int) Math.ceil(2.0 * Math.max(Math.abs(dx), Math.abs(dy)));
+        for (int i = 0; i <= samples; i++) {
+            double t = samples == 0 ? 0.0 : (double) i / samples;
+            int x = (int) Math.floor(x0 + dx * t);
+            int y = (int) Math.floor(y0 + dy * t);
+            if (x < 0 || y < 0 || x >= width || y >= height) {
+                return false;
+            }
+            int node = y * width + x;
+            if (isBlocked(node, blocked) || clearance[node] < NEAR_OBSTACLE_METERS * 0.5) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the nodes covered by obstacles
+     *
+     * @param boxes Opposite corners of the obstacle bounding boxes
+     * @return Covered nodes, indexed as {@code row * width + column}
+     */
+    public BitSet getObstacleNodes(List<Pair<Translation2d, Translation2d>> boxes) {
+        return rasterize(boxes, nodeSizeMeters, width, height);
+    }
+
+    /**
+     * Gets the cells of a grid covered by obstacles
+     *
+     * @param boxes          Opposite corners of the obstacle bounding boxes
+     * @param nodeSizeMeters Side of a cell
+     * @param width          Columns of the grid
+     * @param height         Rows of the grid
+     * @return Covered cells, indexed as {@code row * width + column}
+     */
+    static BitSet rasterize(List<Pair<Translation2d, Translation2d>> boxes, double nodeSizeMeters, int width,
+            int height) {
+        BitSet cells = new BitSet(width * height);
+        for (Pair<Translation2d, Translation2d> box : boxes) {
+            Translation2d a = box.getFirst();
+            Translation2d b = box.getSecond();
+            int minX = Math.max(0, (int) Math.floor(Math.min(a.getX(), b.getX()) / nodeSizeMeters));
+            int maxX = Math.min(width - 1, (int) Math.floor(Math.max(a.getX(), b.getX()) / nodeSizeMeters));
+            int minY = Math.max(0, (int) Math.floor(Math.min(a.getY(), b.getY()) / nodeSizeMeters));
+            int maxY = Math.min(height - 1, (int) Math.floor(Math.max(a.getY(), b.getY()) / nodeSizeMeters));
+            for (int y = minY; y <= maxY; y++) {
+                if (minX <= maxX) {
+                    cells.set(y * width + minX, y * width + maxX + 1);
+                }
+            }
+        }
+        return cells;
+    }
+
+    private int nodeAt(Translation2d position) {
+        int x = (int) Math.floor(position.getX() / nodeSizeMeters);
+        int y = (int) Math.floor(position.getY() / nodeSizeMeters);
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return -1;
+        }
+        return y * width + x;
+    }
+
+    private Translation2d nodeCenter(int node) {
+        return new Translation2d((node % width + 0.5) * nodeSizeMeters, (node / width + 0.5) * nodeSizeMeters);
+    }
+
+    /**
+     * Finds the closest node to a position that is not an obstacle
+     *
+     * @return The node, or -1 if the grid has no free nodes
+     */
+    private int nearestFreeNode(Translation2d position) {
+        int x = Math.min(width - 1, Math.max(0, (int) Math.floor(position.getX() / nodeSizeMeters)));
+        int y = Math.min(height - 1, Math.max(0, (int) Math.floor(position.getY() / nodeSizeMeters)));
+        if (width == 0 || height == 0) {
+            return -1;
+        }
+        if (!obstacles[y * width + x]) {
+            return y * width + x;
+        }
+
+        int maxRadius = Math.max(width, height);
+        for (int radius = 1; radius < maxRadius; radius++) {
+            int best = -1;
+            double bestDistance = Double.MAX_VALUE;
+            for (int ny = y - radius; ny <= y + radius; ny++) {
+                for (int nx = x - radius; nx <= x + radius; nx++) {
+                    boolean ring = Math.abs(nx - x) == radius || Math.abs(ny - y) == radius;
+                    if (!ring || nx < 0 || ny < 0 || nx >= width || ny >= height || obstacles[ny * width + nx]) {
+                        continue;
+                    }
+                    double distance = Math.hypot(nx - x, ny - y);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = ny * width + nx;
+                    }
+                }
+            }
+            if (best >= 0) {
+                return best;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Ranks goals by the cost of their paths from a start
+     *
+     * @param start Start position
+     * @param goals Candidate goals
+     * @return The goals from cheapest to most expensive, unreachable ones last
+     */
+    public List<GoalCost> rankGoals(Translation2d start, List<Translation2d> goals) {
+        return rankGoals(start, goals, Collections.emptyList());
+    }
+
+    /**
+     * Ranks goals by the cost of their paths from a start, around dynamic
+     * obstacles. Goals with a table are read from it when there are no dynamic
+     * obstacles, and the rest are solved by a single search from the start that
+     * stops once all of them are reached
+     *
+     * @param start            Start position
+     * @param goals            Candidate goals
+     * @param dynamicObstacles Opposite corners of the obstacle bounding boxes
+     * @return The goals from cheapest to most expensive, unreachable ones last.
+     *         Empty if the field is not ready
+     */
+    public List<GoalCost> rankGoals(Translation2d start, List<Translation2d> goals,
+            List<Pair<Translation2d, Translation2d>> dynamicObstacles) {
+        int startNode = ready ? nearestFreeNode(start) : -1;
+        if (startNode < 0) {
+            return Collections.emptyList();
+        }
+        BitSet blocked = dynamicObstacles.isEmpty() ? null : getObstacleNodes(dynamicObstacles);
+
+        int[] goalNodes = new int[goals.size()];
+        double[] goalCosts = new double[goals.size()];
+        BitSet targets = new BitSet(width * height);
+        for (int i = 0; i < goals.size(); i++) {
+            goalNodes[i] = nearestFreeNode(goals.get(i));
+            goalCosts[i] = Double.POSITIVE_INFINITY;
+            float[] goalField = blocked == null && goalNodes[i] >= 0 ? getGoalField(goalNodes[i]) : null;
+            if (goalField != null) {
+                goalCosts[i] = goalField[startNode] == Float.MAX_VALUE ? Double.POSITIVE_INFINITY
+                        : goalField[startNode];
+            } else if (goalNodes[i] >= 0 && !(blocked != null && blocked.get(goalNodes[i]))) {
+                targets.set(goalNodes[i]);
+            }
+        }
+
+        if (!targets.isEmpty()) {
+            float[] costs = searchTargets(startNode, targets, blocked);
+            for (int i = 0; i < goals.size(); i++) {
+                if (goalNodes[i] >= 0 && targets.get(goalNodes[i]) && costs[goalNodes[i]] != Float.MAX_VALUE) {
+                    goalCosts[i] = costs[goalNodes[i]];
+                }
+            }
+        }
+
+        List<GoalCost> ranked = new ArrayList<>();
+        for (int i = 0; i < goals.size(); i++) {
+            ranked.add(new GoalCost(i, goals.get(i), goalCosts[i]));
+        }
+        ranked.sort((a, b) -> Double.compare(a.costMeters, b.costMeters));
+        return ranked;
+    }
+
+    /**
+     * Dijkstra from a start that stops once every target is reached
+     *
+     * @return Costs from the start, exact for the targets
+     */
+    private float[] searchTargets(int start, BitSet targets, BitSet blocked) {
+        float[] costs = new float[width * height];
+        Arrays.fill(costs, Float.MAX_VALUE);
+        boolean[] closed = new boolean[width * height];
+        NodeHeap open = new NodeHeap(width * height);
+        int remaining = targets.cardinality();
+        int expanded = 0;
+
+        costs[start] = 0.0f;
+        open.push(start, 0.0f);
+        while (!open.isEmpty() && remaining > 0) {
+            int node = open.pop();
+            if (closed[node]) {
+                continue;
+            }
+            closed[node] = true;
+            expanded++;
+            if (targets.get(node)) {
+                remaining--;
+            }
+            for (int d = 0; d < 8; d++) {
+                int next = neighbor(node, d, blocked);
+                if (next < 0 || closed[next]) {
+                    continue;
+                }
+                float nextCost = costs[node] + stepCost(node, next, d);
+                if (nextCost < costs[next]) {
+                    costs[next] = nextCost;
+                    open.push(next, nextCost);
+                }
+            }
+        }
+        lastExpandedNodes = expanded;
+        return costs;
+    }
+
+    /**
+     * Checks if the tables are computed. Paths are empty until they are
+     *
+     * @return True if the field can pathfind
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Gets the distance from a position to the nearest obstacle
+     *
+     * @param position Position on the field
+     * @return Distance in meters, 0 inside obstacles or out of the field
+     */
+    public double getClearance(Translation2d position) {
+        int node = nodeAt(position);
+        return !ready || node < 0 ? 0.0 : clearance[node];
+    }
+
+    public double getNodeSizeMeters() {
+        return nodeSizeMeters;
+    }
+
+    /** Returns the nodes expanded by the last search, for profiling */
+    public int getLastExpandedNodes() {
+        return lastExpandedNodes;
+    }
+
+    /** Cost of the path to a candidate goal */
+    public static final class GoalCost {
+        /* Index of the goal in the candidates */
+        public final int index;
+        public final Translation2d goal;
+        /* Length of the path plus the penalty near obstacles, infinite if unreachable */
+        public final double costMeters;
+
+        public GoalCost(int index, Translation2d goal, double costMeters) {
+            this.index = index;
+            this.goal = goal;
+            this.costMeters = costMeters;
+        }
+
+        public boolean isReachable() {
+            return costMeters != Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /** Binary min heap of nodes, without boxing */
+    private static final class NodeHeap {
+        private int[] nodes;
+        private float[] priorities;
+        private int size = 0;
+
+        private NodeHeap(int capacity) {
+            nodes = new int[Math.max(16, capacity)];
+            priorities = new float[nodes.length];
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private float peekPriority() {
+            return priorities[0];
+        }
+
+        private void push(int node, float priority) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                priorities = Arrays.copyOf(priorities, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (priorities[parent] <= priority) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                priorities[i] = priorities[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            priorities[i] = priority;
+        }
+
+        private int pop() {
+            int top = nodes[0];
+            size--;
+            int node = nodes[size];
+            float priority = priorities[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && priorities[child + 1] < priorities[child]) {
+                    child++;
+                }
+                if (priorities[child] >= priority) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                priorities[i] = priorities[child];
+                i = child;
+            }
+            nodes[i] = node;
+            priorities[i] = priority;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.andromedalib.andromedaSwerve.utils;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+
+/**
+ * Sanity checks every odometry sample for wheel slip and collisions.
+ *
+ * <p>
+ * For each sample the module displacements are fitted to a rigid body twist.
+ * A module whose displacement does not agree with the twist is slipping; its
+ * displacement is replaced with the one predicted by the remaining modules.
+ * The fitted rotation is compared against the gyro, and a sudden change of the
+ * chassis velocity is reported as a collision. Every check is a fixed amount
+ * of work per module, so the cost per sample is constant.
+ *
+ * <p>
+ * Samples are processed from the odometry thread; the event counters are safe
+ * to read from the main loop.
+ */
+public class OdometrySlipDetector {
+    public static final int SLIP = 1;
+    public static final int GYRO_MISMATCH = 2;
+    public static final int COLLISION = 4;
+
+    /* Trust given to a sample when each event is detected */
+    private static final double SLIP_TRUST = 0.5;
+    private static final double GYRO_MISMATCH_TRUST = 0.5;
+    private static final double COLLISION_TRUST = 0.1;
+
+    /* Smoothing of the chassis velocity used for collision detection */
+    private static final double VELOCITY_FILTER_GAIN = 0.5;
+
+    private final int moduleCount;
+    private final double[] moduleX;
+    private final double[] moduleY;
+
+    private double slipThreshold = 0.5;
+    private double gyroMismatchThreshold = 1.0;
+    private double collisionThreshold;
+
+    /* Per sample state */
+    private boolean initialized = false;
+    private double lastTimestamp = 0.0;
+    private double lastGyroYaw = Double.NaN;
+    private double filteredVx = 0.0;
+    private double filteredVy = 0.0;
+    private final double[] lastDistances;
+    private final double[] distanceOffsets;
+    private final double[] deltaX;
+    private final double[] deltaY;
+    private final double[] weights;
+    private double twistX = 0.0;
+    private double twistY = 0.0;
+    private double twistTheta = 0.0;
+    private double sampleTrust = 1.0;
+
+    /* Event counters, read from the main loop */
+    private volatile long slipCount = 0;
+    private volatile long gyroMismatchCount = 0;
+    private volatile long collisionCount = 0;
+    private volatile double lastEventTimestamp = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Creates a new OdometrySlipDetector
+     *
+     * @param moduleTranslations Module translations relative to the robot center
+     * @param maxAcceleration    Max chassis acceleration in meters per second
+     *                           squared. Accelerations three times higher are
+     *                           reported as collisions
+     */
+    public OdometrySlipDetector(Translation2d[] moduleTranslations, double maxAcceleration) {
+        moduleCount = moduleTranslations.length;
+        moduleX = new double[moduleCount];
+        moduleY = new double[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            moduleX[i] = moduleTranslations[i].getX();
+            moduleY[i] = moduleTranslations[i].getY();
+        }
+
+        lastDistances = new double[moduleCount];
+        distanceOffsets = new double[moduleCount];
+        deltaX = new double[moduleCount];
+        deltaY = new double[moduleCount];
+        weights = new double[moduleCount];
+
+        collisionThreshold = maxAcceleration > 0.0 ? 3.0 * maxAcceleration : 20.0;
+    }
+
+    /**
+     * Sets the detection thresholds
+     *
+     * @param slipThreshold         Module velocity, in meters per second, that
+     *                              may disagree with the rigid body motion
+     * @param gyroMismatchThreshold Yaw rate, in radians per second, that the
+     *                              wheels may disagree with the gyro
+     * @param collisionThreshold    Chassis acceleration, in meters per second
+     *                              squared, reported as a collision
+     */
+    public void setThresholds(double slipThreshold, double gyroMismatchThreshold, double collisionThreshold) {
+        this.slipThreshold = slipThreshold;
+        this.gyroMismatchThreshold = gyroMismatchThreshold;
+        this.collisionThreshold = collisionThreshold;
+    }
+
+    /**
+     * Checks a sample and writes the corrected module positions
+     *
+     * @param timestampSeconds Sample timestamp
+     * @param measured         Measured module positions
+     * @param gyroYawRadians   Measured gyro yaw, or NaN if not available
+     * @param corrected        Array where the corrected positions are written
+     * @return Bitmask of the detected events
+     */
+    public int process(double timestampSeconds, SwerveModulePosition[] measured, double gyroYawRadians,
+            SwerveModulePosition[] corrected) {
+        int flags = 0;
+        double dt = timestampSeconds - lastTimestamp;
+
+        if (initialized && dt > 0.0) {
+            for (int i = 0; i < moduleCount; i++) {
+                double delta = measured[i].distanceMeters - lastDistances[i];
+                deltaX[i] = delta * measured[i].angle.getCos();
+                deltaY[i] = delta * measured[i].angle.getSin();
+                weights[i] = 1.0;
+            }
+            fitTwist();
+
+            /* Wheel slip */
+            int worstModule = -1;
+            double worstResidual = 0.0;
+            for (int i = 0; i < moduleCount; i++) {
+                double residual = residual(i);
+                if (residual > worstResidual) {
+                    worstResidual = residual;
+                    worstModule = i;
+                }
+            }
+            if (worstResidual / dt > slipThreshold) {
+                flags |= SLIP;
+
+                // Replace the slipping module with the motion of the others
+                if (moduleCount >= 3) {
+                    weights[worstModule] = 0.0;
+                    fitTwist();
+                    double predictedX = twistX - twistTheta * moduleY[worstModule];
+                    double predictedY = twistY + twistTheta * moduleX[worstModule];
+                    double predictedDelta = predictedX * measured[worstModule].angle.getCos()
+                            + predictedY * measured[worstModule].angle.getSin();
+                    double measuredDelta = measured[worstModule].distanceMeters - lastDistances[worstModule];
+                    distanceOffsets[worstModule] += predictedDelta - measuredDelta;
+                }
+            }
+
+            /* Gyro disagreement */
+            if (!Double.isNaN(gyroYawRadians) && !Double.isNaN(lastGyroYaw)) {
+                double gyroDelta = Math.IEEEremainder(gyroYawRadians - lastGyroYaw, 2.0 * Math.PI);
+                if (Math.abs(twistTheta - gyroDelta) / dt > gyroMismatchThreshold) {
+                    flags |= GYRO_MISMATCH;
+                }
+            }
+
+            /* Collision */
+            double lastVx = filteredVx;
+            double lastVy = filteredVy;
+            filteredVx += VELOCITY_FILTER_GAIN * (twistX / dt - filteredVx);
+            filteredVy += VELOCITY_FILTER_GAIN * (twistY / dt - filteredVy);
+            if (Math.hypot(filteredVx - lastVx, filteredVy - lastVy) / dt > collisionThreshold) {
+                flags |= COLLISION;
+            }
+        }
+
+        for (int i = 0; i < moduleCount; i++) {
+            lastDistances[i] = measured[i].distanceMeters;
+            corrected[i] = distanceOffsets[i] == 0.0
+                    ? measured[i]
+                    : new SwerveModulePosition(measured[i].distanceMeters + distanceOffsets[i], measured[i].angle);
+        }
+        lastTimestamp = timestampSeconds;
+        lastGyroYaw = gyroYawRadians;
+        initialized = true;
+
+        sampleTrust = 1.0;
+        if ((flags & SLIP) != 0) {
+            sampleTrust *= SLIP_TRUST;
+            slipCount++;
+        }
+        if ((flags & GYRO_MISMATCH) != 0) {
+            sampleTrust *= GYRO_MISMATCH_TRUST;
+            gyroMismatchCount++;
+        }
+        if ((flags & COLLISION) != 0) {
+            sampleTrust *= COLLISION_TRUST;
+            collisionCount++;
+        }
+        if (flags != 0) {
+            lastEventTimestamp = timestampSeconds;
+        }
+
+        return flags;
+    }
+
+    /**
+     * Gets the trust of the last processed sample, from 0 to 1
+     *
+     * @return Sample trust
+     */
+    public double getSampleTrust() {
+        return sampleTrust;
+    }
+
+    public long getSlipCount() {
+        return slipCount;
+    }
+
+    public long getGyroMismatchCount() {
+        return gyroMismatchCount;
+    }
+
+    public long getCollisionCount() {
+        return collisionCount;
+    }
+
+    /**
+     * Gets the timestamp of the last sample with any event
+     *
+     * @return Timestamp in seconds
+     */
+    public double getLastEventTimestamp() {
+        return lastEventTimestamp;
+    }
+
+    /**
+     * Fits the weighted module displacements to a rigid body twist about the
+     * robot center
+     */
+    private void fitTwist() {
+        double totalWeight = 0.0;
+        double centerX = 0.0;
+        double centerY = 0.0;
+        double meanDeltaX = 0.0;
+        double meanDeltaY = 0.0;
+        for (int i = 0; i < moduleCount; i++) {
+            totalWeight += weights[i];
+            centerX += weights[i] * moduleX[i];
+            centerY += weights[i] * moduleY[i];
+            meanDeltaX += weights[i] * deltaX[i];
+            meanDeltaY += weights[i] * deltaY[i];
+        }
+        centerX /= totalWeight;
+        centerY /= totalWeight;
+        meanDeltaX /= totalWeight;
+        meanDeltaY /= totalWeight;
+
+        double angular = 0.0;
+        double inertia = 0.0;
+        for (int i = 0; i < moduleCount; i++) {
+            double rx = moduleX[i] - centerX;
+            double ry = moduleY[i] - centerY;
+            angular += weights[i] * (rx * deltaY[i] - ry * deltaX[i]);
+            inertia += weights[i] * (rx * rx + ry * ry);
+        }
+
+        twistTheta = inertia > 0.0 ? angular / inertia : 0.0;
+        twistX = meanDeltaX + twistTheta * centerY;
+        twistY = meanDeltaY - twistTheta * centerX;
+    }
+
+    /** Distance between a module displacement and the fitted rigid body motion */
+    private double residual(int module) {
+        double predictedX = twistX - twistTheta * moduleY[module];
+        double predictedY = twistY + twistTheta * moduleX[module];
+        return Math.hypot(deltaX[module] - predictedX, deltaY[module] - predictedY);
+    }
+}
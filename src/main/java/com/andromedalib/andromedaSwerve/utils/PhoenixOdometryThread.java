@@ -15,6 +15,7 @@ package com.andromedalib.andromedaSwerve.utils;
 
 import com.andromedalib.andromedaSwerve.andromedaModule.AndromedaModule;
 import com.andromedalib.andromedaSwerve.subsystems.AndromedaSwerve;
+import com.andromedalib.util.CANBusPlanner;
 import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.CANBus;
 import com.ctre.phoenix6.StatusSignal;
@@ -23,6 +24,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.littletonrobotics.junction.Logger;
@@ -36,11 +38,16 @@ import org.littletonrobotics.junction.Logger;
  * time synchronization.
  */
 public class PhoenixOdometryThread extends Thread {
+  /** Samples each queue holds before new samples are dropped */
+  public static final int QUEUE_CAPACITY = 20;
+
   private final Lock signalsLock =
       new ReentrantLock(); // Prevents conflicts when registering signals
   private BaseStatusSignal[] signals = new BaseStatusSignal[0];
   private final List<Queue<Double>> queues = new ArrayList<>();
   private final List<Queue<Double>> timestampQueues = new ArrayList<>();
+  private final List<OdometrySampleListener> sampleListeners = new CopyOnWriteArrayList<>();
+  private double[] sampleValues = new double[0];
   private boolean isCANFD = false;
 
   private static PhoenixOdometryThread instance = null;
@@ -65,7 +72,7 @@ public class PhoenixOdometryThread extends Thread {
   }
 
   public Queue<Double> registerSignal(ParentDevice device, StatusSignal<Double> signal) {
-    Queue<Double> queue = new ArrayBlockingQueue<>(20);
+    Queue<Double> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
     signalsLock.lock();
     AndromedaSwerve.odometryLock.lock();
     try {
@@ -74,16 +81,18 @@ public class PhoenixOdometryThread extends Thread {
       System.arraycopy(signals, 0, newSignals, 0, signals.length);
       newSignals[signals.length] = signal;
       signals = newSignals;
+      sampleValues = new double[newSignals.length];
       queues.add(queue);
     } finally {
       signalsLock.unlock();
       AndromedaSwerve.odometryLock.unlock();
     }
+    CANBusPlanner.getInstance().registerSignals(device, AndromedaModule.ODOMETRY_FREQUENCY, signal);
     return queue;
   }
 
   public Queue<Double> makeTimestampQueue() {
-    Queue<Double> queue = new ArrayBlockingQueue<>(20);
+    Queue<Double> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
     AndromedaSwerve.odometryLock.lock();
     try {
       timestampQueues.add(queue);
@@ -93,6 +102,37 @@ public class PhoenixOdometryThread extends Thread {
     return queue;
   }
 
+  /**
+   * Gets the index of a registered signal inside the sample values passed to an
+   * {@link OdometrySampleListener}
+   *
+   * @param queue Queue returned by {@link #registerSignal}
+   * @return Index of the signal, or -1 if the queue was not registered
+   */
+  public int getSignalIndex(Queue<Double> queue) {
+    signalsLock.lock();
+    try {
+      for (int i = 0; i < queues.size(); i++) {
+        if (queues.get(i) == queue) {
+          return i;
+        }
+      }
+      return -1;
+    } finally {
+      signalsLock.unlock();
+    }
+  }
+
+  /**
+   * Adds a listener that is called from this thread for every sample, right
+   * after it is added to the queues and while the odometry lock is held
+   *
+   * @param listener Listener to add
+   */
+  public void addSampleListener(OdometrySampleListener listener) {
+    sampleListeners.add(listener);
+  }
+
   @Override
   public void run() {
     while (true) {
@@ -127,14 +167,32 @@ public class PhoenixOdometryThread extends Thread {
           timestamp -= totalLatency / signals.length;
         }
         for (int i = 0; i < signals.length; i++) {
-          queues.get(i).offer(signals[i].getValueAsDouble());
+          sampleValues[i] = signals[i].getValueAsDouble();
+          queues.get(i).offer(sampleValues[i]);
         }
         for (int i = 0; i < timestampQueues.size(); i++) {
           timestampQueues.get(i).offer(timestamp);
         }
+        for (OdometrySampleListener listener : sampleListeners) {
+          listener.onSample(timestamp, sampleValues);
+        }
       } finally {
         AndromedaSwerve.odometryLock.unlock();
       }
     }
   }
+
+  /** Receives every sample taken by the odometry thread */
+  @FunctionalInterface
+  public interface OdometrySampleListener {
+    /**
+     * Called for every sample
+     *
+     * @param timestampSeconds Latency compensated timestamp of the sample
+     * @param values           Value of every registered signal, indexed by
+     *                         {@link PhoenixOdometryThread#getSignalIndex}. The
+     *                         array is reused between samples
+     */
+    void onSample(double timestampSeconds, double[] values);
+  }
 }
@@ -0,0 +1,119 @@
+package com.andromedalib.andromedaSwerve.utils;
+
+import com.andromedalib.andromedaSwerve.config.AndromedaSwerveConfig;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Second order swerve inverse kinematics.
+ *
+ * <p>
+ * Besides the module states, it computes the steering velocity each module
+ * needs to follow the requested chassis acceleration and the acceleration of
+ * each drive wheel. Using them as feedforward removes the drift that first
+ * order kinematics show while translating and rotating at the same time. The
+ * computation uses the inverse kinematics matrices precomputed in
+ * {@link AndromedaSwerveConfig} and writes into preallocated outputs.
+ */
+public class SecondOrderKinematics {
+    private static final double EPSILON = 1e-6;
+
+    private final int moduleCount;
+    private final double[] firstOrder;
+    private final double[] secondOrder;
+
+    private final SwerveModuleState[] moduleStates;
+    private final double[] steerVelocities;
+    private final double[] driveAccelerations;
+
+    /**
+     * Creates a new SecondOrderKinematics
+     *
+     * @param config {@link AndromedaSwerveConfig} of the drivetrain
+     */
+    public SecondOrderKinematics(AndromedaSwerveConfig config) {
+        moduleCount = config.moduleTranslations.length;
+        firstOrder = config.firstOrderInverseKinematics;
+        secondOrder = config.secondOrderInverseKinematics;
+
+        moduleStates = new SwerveModuleState[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            moduleStates[i] = new SwerveModuleState();
+        }
+        steerVelocities = new double[moduleCount];
+        driveAccelerations = new double[moduleCount];
+    }
+
+    /**
+     * Computes the module states and feedforwards for the given chassis motion
+     *
+     * @param speeds       Robot relative {@link ChassisSpeeds}
+     * @param ax           Robot relative x acceleration in meters per second
+     *                     squared
+     * @param ay           Robot relative y acceleration in meters per second
+     *                     squared
+     * @param alpha        Angular acceleration in radians per second squared
+     * @return Module states. The returned array, its states and the feedforward
+     *         arrays are reused between calls
+     */
+    public SwerveModuleState[] toSwerveModuleStates(ChassisSpeeds speeds, double ax, double ay, double alpha) {
+        double vx = speeds.vxMetersPerSecond;
+        double vy = speeds.vyMetersPerSecond;
+        double omega = speeds.omegaRadiansPerSecond;
+        double omegaSquared = omega * omega;
+
+        for (int i = 0; i < moduleCount; i++) {
+            int first = i * 6;
+            double moduleVx = firstOrder[first] * vx + firstOrder[first + 1] * vy + firstOrder[first + 2] * omega;
+            double moduleVy = firstOrder[first + 3] * vx + firstOrder[first + 4] * vy + firstOrder[first + 5] * omega;
+
+            int second = i * 8;
+            double moduleAx = secondOrder[second] * ax + secondOrder[second + 1] * ay
+                    + secondOrder[second + 2] * omegaSquared + secondOrder[second + 3] * alpha;
+            double moduleAy = secondOrder[second + 4] * ax + secondOrder[second + 5] * ay
+                    + secondOrder[second + 6] * omegaSquared + secondOrder[second + 7] * alpha;
+
+            double speedSquared = moduleVx * moduleVx + moduleVy * moduleVy;
+            SwerveModuleState state = moduleStates[i];
+
+            if (speedSquared < EPSILON) {
+                // Keep the previous heading while stopped
+                state.speedMetersPerSecond = 0.0;
+                steerVelocities[i] = 0.0;
+                driveAccelerations[i] = 0.0;
+                continue;
+            }
+
+            double speed = Math.sqrt(speedSquared);
+            state.speedMetersPerSecond = speed;
+            state.angle = new Rotation2d(moduleVx, moduleVy);
+
+            steerVelocities[i] = (moduleVx * moduleAy - moduleVy * moduleAx) / speedSquared;
+            driveAccelerations[i] = (moduleVx * moduleAx + moduleVy * moduleAy) / speed;
+        }
+
+        return moduleStates;
+    }
+
+    /**
+     * Gets the steering velocity feedforward of every module computed by the last
+     * call
+     *
+     * @return Steering velocities in radians per second
+     */
+    public double[] getSteerVelocities() {
+        return steerVelocities;
+    }
+
+    /**
+     * Gets the drive acceleration feedforward of every module computed by the
+     * last call
+     *
+     * @return Drive accelerations in meters per second squared
+     */
+    public double[] getDriveAccelerations() {
+        return driveAccelerations;
+    }
+}
@@ -0,0 +1,282 @@
+package com.andromedalib.andromedaSwerve.utils;
+
+import com.andromedalib.andromedaSwerve.config.AndromedaSwerveConfig;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Generates kinematically feasible swerve setpoints.
+ *
+ * <p>
+ * Each call moves the previous setpoint towards the desired
+ * {@link ChassisSpeeds} by the largest fraction that keeps every module inside
+ * its drive acceleration and steering velocity limits, and the chassis inside
+ * its angular acceleration limit. The previous setpoint is kept as internal
+ * state, all the math is done on preallocated primitive arrays and the
+ * steering search runs for a fixed number of bisection iterations, so the cost
+ * of a call is bounded and does not depend on the requested motion.
+ *
+ * <p>
+ * Modules that are at rest may re-orient freely, since they are not producing
+ * any translation while they do so.
+ */
+public class SwerveSetpointGenerator {
+    private static final double EPSILON = 1e-6;
+    public static final int DEFAULT_MAX_ITERATIONS = 8;
+
+    private final int moduleCount;
+    private final double[] moduleX;
+    private final double[] moduleY;
+
+    private final double maxDriveVelocity;
+    private final double maxDriveAcceleration;
+    private final double maxSteeringVelocity;
+    private final double maxAngularAcceleration;
+    private final int maxIterations;
+
+    /* Previous setpoint */
+    private double prevVx = 0.0;
+    private double prevVy = 0.0;
+    private double prevOmega = 0.0;
+    private final double[] prevHeadings;
+
+    /* Scratch buffers */
+    private final double[] prevModuleVx;
+    private final double[] prevModuleVy;
+    private final double[] desiredModuleVx;
+    private final double[] desiredModuleVy;
+
+    private final SwerveSetpoint setpoint;
+
+    /**
+     * Creates a new SwerveSetpointGenerator using the limits of the swerve config
+     *
+     * @param config              {@link AndromedaSwerveConfig} of the drivetrain
+     * @param maxSteeringVelocity Maximum module steering velocity in radians per
+     *                            second
+     */
+    public SwerveSetpointGenerator(AndromedaSwerveConfig config, double maxSteeringVelocity) {
+        this(config, maxSteeringVelocity, DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * Creates a new SwerveSetpointGenerator using the limits of the swerve config
+     *
+     * @param config              {@link AndromedaSwerveConfig} of the drivetrain
+     * @param maxSteeringVelocity Maximum module steering velocity in radians per
+     *                            second
+     * @param maxIterations       Bisection iterations used to solve the steering
+     *                            limit of each module
+     */
+    public SwerveSetpointGenerator(AndromedaSwerveConfig config, double maxSteeringVelocity, int maxIterations) {
+        this.moduleCount = config.moduleTranslations.length;
+        this.maxDriveVelocity = config.maxSpeed;
+        this.maxDriveAcceleration = config.maxAcceleration;
+        this.maxAngularAcceleration = config.maxAngularAcceleration;
+        this.maxSteeringVelocity = maxSteeringVelocity;
+        this.maxIterations = maxIterations;
+
+        moduleX = new double[moduleCount];
+        moduleY = new double[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            moduleX[i] = config.moduleTranslations[i].getX();
+            moduleY[i] = config.moduleTranslations[i].getY();
+        }
+
+        prevHeadings = new double[moduleCount];
+        prevModuleVx = new double[moduleCount];
+        prevModuleVy = new double[moduleCount];
+        desiredModuleVx = new double[moduleCount];
+        desiredModuleVy = new double[moduleCount];
+
+        SwerveModuleState[] states = new SwerveModuleState[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            states[i] = new SwerveModuleState();
+        }
+        setpoint = new SwerveSetpoint(new ChassisSpeeds(), states);
+    }
+
+    /**
+     * Resets the previous setpoint to the measured state of the robot. Call this
+     * whenever the drivetrain has not been following the generator (e.g. while
+     * disabled)
+     *
+     * @param measuredSpeeds Measured robot relative {@link ChassisSpeeds}
+     * @param measuredStates Measured {@link SwerveModuleState} of every module
+     */
+    public void reset(ChassisSpeeds measuredSpeeds, SwerveModuleState[] measuredStates) {
+        prevVx = measuredSpeeds.vxMetersPerSecond;
+        prevVy = measuredSpeeds.vyMetersPerSecond;
+        prevOmega = measuredSpeeds.omegaRadiansPerSecond;
+
+        setpoint.chassisSpeeds.vxMetersPerSecond = prevVx;
+        setpoint.chassisSpeeds.vyMetersPerSecond = prevVy;
+        setpoint.chassisSpeeds.omegaRadiansPerSecond = prevOmega;
+
+        for (int i = 0; i < moduleCount; i++) {
+            prevHeadings[i] = measuredStates[i].angle.getRadians();
+            setpoint.moduleStates[i].speedMetersPerSecond = measuredStates[i].speedMetersPerSecond;
+            setpoint.moduleStates[i].angle = measuredStates[i].angle;
+        }
+    }
+
+    /**
+     * Generates the next setpoint
+     *
+     * @param desiredSpeeds  Desired robot relative {@link ChassisSpeeds}
+     * @param periodSeconds  Time until the next setpoint is generated
+     * @return The new {@link SwerveSetpoint}. The returned instance is reused
+     *         between calls
+     */
+    public SwerveSetpoint generate(ChassisSpeeds desiredSpeeds, double periodSeconds) {
+        double desiredVx = desiredSpeeds.vxMetersPerSecond;
+        double desiredVy = desiredSpeeds.vyMetersPerSecond;
+        double desiredOmega = desiredSpeeds.omegaRadiansPerSecond;
+
+        /* Desired module velocities, desaturated to the max module speed */
+        double maxDesiredSpeed = 0.0;
+        for (int i = 0; i < moduleCount; i++) {
+            desiredModuleVx[i] = desiredVx - desiredOmega * moduleY[i];
+            desiredModuleVy[i] = desiredVy + desiredOmega * moduleX[i];
+            maxDesiredSpeed = Math.max(maxDesiredSpeed, Math.hypot(desiredModuleVx[i], desiredModuleVy[i]));
+        }
+        if (maxDesiredSpeed > maxDriveVelocity && maxDesiredSpeed > EPSILON) {
+            double scale = maxDriveVelocity / maxDesiredSpeed;
+            desiredVx *= scale;
+            desiredVy *= scale;
+            desiredOmega *= scale;
+            for (int i = 0; i < moduleCount; i++) {
+                desiredModuleVx[i] *= scale;
+                desiredModuleVy[i] *= scale;
+            }
+        }
+
+        for (int i = 0; i < moduleCount; i++) {
+            prevModuleVx[i] = prevVx - prevOmega * moduleY[i];
+            prevModuleVy[i] = prevVy + prevOmega * moduleX[i];
+        }
+
+        /* Fraction of the requested change that can be applied this cycle */
+        double s = 1.0;
+
+        double maxOmegaStep = maxAngularAcceleration * periodSeconds;
+        double omegaStep = Math.abs(desiredOmega - prevOmega);
+        if (maxAngularAcceleration > 0.0 && omegaStep > maxOmegaStep) {
+            s = Math.min(s, maxOmegaStep / omegaStep);
+        }
+
+        double maxVelocityStep = maxDriveAcceleration * periodSeconds;
+        for (int i = 0; i < moduleCount; i++) {
+            double velocityStep = Math.hypot(desiredModuleVx[i] - prevModuleVx[i],
+                    desiredModuleVy[i] - prevModuleVy[i]);
+            if (maxDriveAcceleration > 0.0 && velocityStep > maxVelocityStep) {
+                s = Math.min(s, maxVelocityStep / velocityStep);
+            }
+        }
+
+        double maxHeadingStep = maxSteeringVelocity * periodSeconds;
+        if (maxSteeringVelocity > 0.0) {
+            for (int i = 0; i < moduleCount; i++) {
+                if (Math.hypot(prevModuleVx[i], prevModuleVy[i]) < EPSILON) {
+                    continue; // Modules at rest re-orient without producing motion
+                }
+                if (headingError(i, s) <= maxHeadingStep) {
+                    continue;
+                }
+
+                double low = 0.0;
+                double high = s;
+                for (int iteration = 0; iteration < maxIterations; iteration++) {
+                    double mid = 0.5 * (low + high);
+                    if (headingError(i, mid) <= maxHeadingStep) {
+                        low = mid;
+                    } else {
+                        high = mid;
+                    }
+                }
+                s = low;
+            }
+        }
+
+        /* Apply the limited change */
+        prevVx += s * (desiredVx - prevVx);
+        prevVy += s * (desiredVy - prevVy);
+        prevOmega += s * (desiredOmega - prevOmega);
+
+        setpoint.chassisSpeeds.vxMetersPerSecond = prevVx;
+        setpoint.chassisSpeeds.vyMetersPerSecond = prevVy;
+        setpoint.chassisSpeeds.omegaRadiansPerSecond = prevOmega;
+
+        for (int i = 0; i < moduleCount; i++) {
+            double vx = prevModuleVx[i] + s * (desiredModuleVx[i] - prevModuleVx[i]);
+            double vy = prevModuleVy[i] + s * (desiredModuleVy[i] - prevModuleVy[i]);
+            double speed = Math.hypot(vx, vy);
+
+            SwerveModuleState state = setpoint.moduleStates[i];
+            if (speed < EPSILON) {
+                state.speedMetersPerSecond = 0.0;
+                continue; // Keep the previous heading
+            }
+
+            double heading = Math.atan2(vy, vx);
+            double delta = wrapAngle(heading - prevHeadings[i]);
+            if (Math.abs(delta) > Math.PI / 2.0) {
+                // Reverse the drive instead of turning the module around
+                heading = wrapAngle(heading + Math.PI);
+                speed = -speed;
+            }
+
+            state.speedMetersPerSecond = speed;
+            if (heading != prevHeadings[i]) {
+                state.angle = new Rotation2d(heading);
+                prevHeadings[i] = heading;
+            }
+        }
+
+        return setpoint;
+    }
+
+    /**
+     * Gets the last generated setpoint
+     *
+     * @return Last {@link SwerveSetpoint}
+     */
+    public SwerveSetpoint getSetpoint() {
+        return setpoint;
+    }
+
+    /**
+     * Heading change, modulo half a turn, that a module needs when the previous
+     * setpoint is moved by a fraction of the requested change
+     */
+    private double headingError(int module, double s) {
+        double vx = prevModuleVx[module] + s * (desiredModuleVx[module] - prevModuleVx[module]);
+        double vy = prevModuleVy[module] + s * (desiredModuleVy[module] - prevModuleVy[module]);
+        if (Math.hypot(vx, vy) < EPSILON) {
+            return 0.0;
+        }
+        double delta = Math.abs(wrapAngle(Math.atan2(vy, vx) - prevHeadings[module]));
+        return Math.min(delta, Math.PI - delta);
+    }
+
+    /** Wraps an angle to the (-pi, pi] range */
+    private static double wrapAngle(double radians) {
+        return Math.atan2(Math.sin(radians), Math.cos(radians));
+    }
+
+    /**
+     * Setpoint produced by the {@link SwerveSetpointGenerator}. Fields are mutated
+     * in place every time a new setpoint is generated
+     */
+    public static class SwerveSetpoint {
+        public final ChassisSpeeds chassisSpeeds;
+        public final SwerveModuleState[] moduleStates;
+
+        public SwerveSetpoint(ChassisSpeeds chassisSpeeds, SwerveModuleState[] moduleStates) {
+            this.chassisSpeeds = chassisSpeeds;
+            this.moduleStates = moduleStates;
+        }
+    }
+}
@@ -5,10 +5,16 @@
 package com.andromedalib.motorControllers;
 
 import com.andromedalib.motorControllers.IdleManager.GlobalIdleMode;
+import com.andromedalib.robot.ReplayPerformanceMode;
+import com.andromedalib.util.CANBusPlanner;
+import com.andromedalib.util.ConfigurationCache;
+import com.andromedalib.util.DeviceConfigurator;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.REVLibError;
 import com.revrobotics.RelativeEncoder;
 import com.revrobotics.SparkAbsoluteEncoder;
+import com.revrobotics.SparkPIDController;
 
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 
@@ -35,11 +41,16 @@ public class SuperSparkMax extends CANSparkMax implements HyperMotorController {
      */
     public SuperSparkMax(int motorID, MotorType type, GlobalIdleMode idleMode, boolean isInverted, int currentLimit) {
         super(motorID, type);
+        long fingerprint = ConfigurationCache.fingerprint(type, idleMode, isInverted, currentLimit);
+        if (isConfigurationCached(fingerprint, idleMode, isInverted)) {
+            setSmartCurrentLimit(currentLimit);
+            return;
+        }
         restoreFactoryDefaults();
         setMode(idleMode);
         setInverted(isInverted);
         setSmartCurrentLimit(currentLimit);
-        burnFlash();
+        burnFlashAndCache(fingerprint);
     }
 
     /**
@@ -52,10 +63,14 @@ public class SuperSparkMax extends CANSparkMax implements HyperMotorController {
      */
     public SuperSparkMax(int motorID, MotorType type, GlobalIdleMode idleMode, boolean isInverted) {
         super(motorID, type);
+        long fingerprint = ConfigurationCache.fingerprint(type, idleMode, isInverted);
+        if (isConfigurationCached(fingerprint, idleMode, isInverted)) {
+            return;
+        }
         restoreFactoryDefaults();
         setMode(idleMode);
         setInverted(isInverted);
-        burnFlash();
+        burnFlashAndCache(fingerprint);
     }
 
     /**
@@ -114,11 +129,17 @@ public class SuperSparkMax extends CANSparkMax implements HyperMotorController {
      */
     public SuperSparkMax(int motorID, boolean isInverted, int currentLimit) {
         super(motorID, MotorType.kBrushless);
+        long fingerprint = ConfigurationCache.fingerprint(MotorType.kBrushless, GlobalIdleMode.Coast, isInverted,
+                currentLimit);
+        if (isConfigurationCached(fingerprint, GlobalIdleMode.Coast, isInverted)) {
+            setSmartCurrentLimit(currentLimit);
+            return;
+        }
         restoreFactoryDefaults();
         setMode(GlobalIdleMode.Coast);
         setInverted(isInverted);
         setSmartCurrentLimit(currentLimit);
-        burnFlash();
+        burnFlashAndCache(fingerprint);
     }
 
     /**
@@ -131,10 +152,14 @@ public class SuperSparkMax extends CANSparkMax implements HyperMotorController {
      */
     public SuperSparkMax(int motorID, boolean isInverted) {
         super(motorID, MotorType.kBrushless);
+        long fingerprint = ConfigurationCache.fingerprint(MotorType.kBrushless, GlobalIdleMode.Coast, isInverted);
+        if (isConfigurationCached(fingerprint, GlobalIdleMode.Coast, isInverted)) {
+            return;
+        }
         restoreFactoryDefaults();
         setMode(GlobalIdleMode.Coast);
         setInverted(isInverted);
-        burnFlash();
+        burnFlashAndCache(fingerprint);
     }
 
     /**
@@ -147,14 +172,77 @@ public class SuperSparkMax extends CANSparkMax implements HyperMotorController {
      */
     public SuperSparkMax(int motorID, boolean isInverted, GlobalIdleMode mode) {
         super(motorID, MotorType.kBrushless);
+        long fingerprint = ConfigurationCache.fingerprint(MotorType.kBrushless, mode, isInverted);
+        if (isConfigurationCached(fingerprint, mode, isInverted)) {
+            return;
+        }
         restoreFactoryDefaults();
         setMode(mode);
         setInverted(isInverted);
-        burnFlash();
+        burnFlashAndCache(fingerprint);
+    }
+
+    /**
+     * Checks if the flash of the motor controller already has the configuration.
+     * Besides the stored fingerprint, the idle mode, inversion, slot 0 gains and
+     * encoder conversion factors are read back to detect swapped controllers.
+     * The configurations restore the factory defaults, so the gains and factors
+     * must still be the defaults. The current limit can't be read back, so the
+     * callers send it again when the configuration is skipped
+     * 
+     * @param fingerprint Fingerprint of the intended configuration
+     * @param idleMode    Intended idle mode
+     * @param isInverted  Intended inverted state
+     * @return True if the configuration can be skipped
+     */
+    private boolean isConfigurationCached(long fingerprint, GlobalIdleMode idleMode, boolean isInverted) {
+        String deviceName = DeviceConfigurator.deviceName("SparkMax", getDeviceId(), null);
+        if (ConfigurationCache.getInstance().matches(deviceName, fingerprint)
+                && getIdleMode() == IdleManager.neutralToIdle(idleMode)
+                && getInverted() == isInverted
+                && hasDefaultGainsAndConversions()) {
+            ConfigurationCache.getInstance().markSkipped(deviceName);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks that the slot 0 gains and the encoder conversion factors have their
+     * factory default values
+     * 
+     * @return True if none of them was changed
+     */
+    private boolean hasDefaultGainsAndConversions() {
+        SparkPIDController pidController = getPIDController();
+        return pidController.getP() == 0.0
+                && pidController.getI() == 0.0
+                && pidController.getD() == 0.0
+                && pidController.getFF() == 0.0
+                && encoder.getPositionConversionFactor() == 1.0
+                && encoder.getVelocityConversionFactor() == 1.0;
+    }
+
+    /**
+     * Burns the configuration to flash and stores its fingerprint
+     * 
+     * @param fingerprint Fingerprint of the configuration
+     */
+    private void burnFlashAndCache(long fingerprint) {
+        String deviceName = DeviceConfigurator.deviceName("SparkMax", getDeviceId(), null);
+        error = burnFlash();
+        if (error == REVLibError.kOk) {
+            ConfigurationCache.getInstance().store(deviceName, fingerprint);
+        } else {
+            ConfigurationCache.getInstance().invalidate(deviceName);
+        }
     }
 
     @Override
     public void outputTelemetry(String tabName) {
+        if (ReplayPerformanceMode.getInstance().isEnabled()) {
+            return;
+        }
         Shuffleboard.getTab(tabName).add("NEO Motor " + getDeviceId() + "Voltage:", getBusVoltage());
         Shuffleboard.getTab(tabName).add("NEO Motor " + getDeviceId() + "Temperature", getMotorTemperature());
     }
@@ -189,6 +277,17 @@ public class SuperSparkMax extends CANSparkMax implements HyperMotorController {
         return currentLimit;
     }
 
+    /**
+     * Requests a periodic frame period through the {@link CANBusPlanner}. The
+     * period is set the next time the plan is applied
+     * 
+     * @param frame    Periodic frame
+     * @param periodMs Period in milliseconds
+     */
+    public void planPeriodicFrame(PeriodicFrame frame, int periodMs) {
+        CANBusPlanner.getInstance().registerSparkMaxFrame(this, frame, periodMs);
+    }
+
     /**
      * Sets the position ƒconversion factor for the encoder
      * 
@@ -6,9 +6,16 @@ package com.andromedalib.motorControllers;
 
 import com.andromedalib.math.Conversions;
 import com.andromedalib.motorControllers.IdleManager.GlobalIdleMode;
+import com.andromedalib.robot.ReplayPerformanceMode;
+import com.andromedalib.util.ConfigurationCache;
+import com.andromedalib.util.DeviceConfigurator;
+import com.andromedalib.util.StatusSignalCache;
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.MotorOutputConfigs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.signals.InvertedValue;
 
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 
@@ -20,6 +27,13 @@ public class SuperTalonFX extends TalonFX implements HyperMotorController {
 
     private double currentLimit = 1;
 
+    private StatusSignal<Double> cachedPosition = null;
+    private StatusSignal<Double> cachedVelocity = null;
+
+    private final Object configurationLock = new Object();
+    /* Configuration submitted to the DeviceConfigurator that was not applied yet */
+    private TalonFXConfiguration pendingConfiguration = null;
+
     /**
      * Configures SuperTalonFX motor controller
      * 
@@ -31,10 +45,7 @@ public class SuperTalonFX extends TalonFX implements HyperMotorController {
     public SuperTalonFX(int motorID, GlobalIdleMode idleMode, boolean isInverted,
             TalonFXConfiguration configuration) {
         super(motorID);
-        getConfigurator().apply(new TalonFXConfiguration());
-        setMode(idleMode);
-        setInverted(isInverted);
-        getConfigurator().apply(configuration);
+        configure(configuration, idleMode, isInverted);
     }
 
     /**
@@ -49,10 +60,7 @@ public class SuperTalonFX extends TalonFX implements HyperMotorController {
     public SuperTalonFX(int motorID, GlobalIdleMode idleMode, boolean isInverted,
             TalonFXConfiguration configuration, String canbus) {
         super(motorID, canbus);
-        getConfigurator().apply(new TalonFXConfiguration());
-        setMode(idleMode);
-        setInverted(isInverted);
-        getConfigurator().apply(configuration);
+        configure(configuration, idleMode, isInverted);
     }
 
     /**
@@ -64,9 +72,7 @@ public class SuperTalonFX extends TalonFX implements HyperMotorController {
      */
     public SuperTalonFX(int motorID, GlobalIdleMode idleMode, boolean isInverted) {
         super(motorID);
-        getConfigurator().apply(new TalonFXConfiguration());
-        setMode(idleMode);
-        setInverted(isInverted);
+        configure(new TalonFXConfiguration(), idleMode, isInverted);
     }
 
     /**
@@ -77,8 +83,7 @@ public class SuperTalonFX extends TalonFX implements HyperMotorController {
      */
     public SuperTalonFX(int motorID, GlobalIdleMode idleMode) {
         super(motorID);
-        getConfigurator().apply(new TalonFXConfiguration());
-        setMode(idleMode);
+        configure(new TalonFXConfiguration(), idleMode, null);
     }
 
     /**
@@ -91,13 +96,11 @@ public class SuperTalonFX extends TalonFX implements HyperMotorController {
      */
     public SuperTalonFX(int motorID, GlobalIdleMode idleMode, boolean isInverted, String canbus) {
         super(motorID, canbus);
-        getConfigurator().apply(new TalonFXConfiguration());
-        setMode(idleMode);
-        setInverted(isInverted);
+        configure(new TalonFXConfiguration(), idleMode, isInverted);
     }
 
     /**
-     * Configures a SuperTalonFX with the {@link NeutralMode} as Coast
+     * Configures a SuperTalonFX with the neutral mode of the configuration
      * 
      * @param motorID
      * @param isInverted
@@ -105,16 +108,12 @@ public class SuperTalonFX extends TalonFX implements HyperMotorController {
      */
     public SuperTalonFX(int motorID, boolean isInverted, TalonFXConfiguration configuration) {
         super(motorID);
-        getConfigurator().apply(new TalonFXConfiguration());
-        setMode(GlobalIdleMode.Coast);
-        setInverted(isInverted);
-        getConfigurator().apply(configuration);
-
+        configure(configuration, null, isInverted);
     }
 
     /**
-     * Configures a SuperTalonFX with the {@link NeutralMode} as Coast to a defined
-     * canbus
+     * Configures a SuperTalonFX with the neutral mode of the configuration to a
+     * defined canbus
      * 
      * @param motorID
      * @param isInverted
@@ -123,15 +122,11 @@ public class SuperTalonFX extends TalonFX implements HyperMotorController {
      */
     public SuperTalonFX(int motorID, boolean isInverted, TalonFXConfiguration configuration, String canbus) {
         super(motorID, canbus);
-        getConfigurator().apply(new TalonFXConfiguration());
-        setMode(GlobalIdleMode.Coast);
-        setInverted(isInverted);
-        getConfigurator().apply(configuration);
-
+        configure(configuration, null, isInverted);
     }
 
     /**
-     * Configures a SuperTalonFX with the {@link NeutralMode} as Coast
+     * Configures a SuperTalonFX with the neutral mode of the configuration
      * 
      * @param motorID
      * @param isInverted
@@ -139,14 +134,12 @@ public class SuperTalonFX extends TalonFX implements HyperMotorController {
      */
     public SuperTalonFX(int motorID, TalonFXConfiguration configuration) {
         super(motorID);
-        getConfigurator().apply(new TalonFXConfiguration());
-        setMode(GlobalIdleMode.Coast);
-        getConfigurator().apply(configuration);
+        configure(configuration, null, null);
     }
 
     /**
-     * Configures a SuperTalonFX with the {@link NeutralMode} as Coast to a defined
-     * canbus
+     * Configures a SuperTalonFX with the neutral mode of the configuration to a
+     * defined canbus
      * 
      * @param motorID
      * @param isInverted
@@ -154,10 +147,7 @@ public class SuperTalonFX extends TalonFX implements HyperMotorController {
      */
     public SuperTalonFX(int motorID, TalonFXConfiguration configuration, String canbus) {
         super(motorID, canbus);
-        getConfigurator().apply(new TalonFXConfiguration());
-        setMode(GlobalIdleMode.Coast);
-        getConfigurator().apply(configuration);
-
+        configure(configuration, null, null);
     }
 
     /**
@@ -171,19 +161,111 @@ public class SuperTalonFX extends TalonFX implements HyperMotorController {
     public SuperTalonFX(int driveMotorID, GlobalIdleMode mode, TalonFXConfiguration driveMotorConfiguration,
             String swerveCANBus) {
         super(driveMotorID, swerveCANBus);
-        getConfigurator().apply(new TalonFXConfiguration());
-        setMode(mode);
-        getConfigurator().apply(driveMotorConfiguration);
+        configure(driveMotorConfiguration, mode, null);
     }
 
     public SuperTalonFX(int motorID, GlobalIdleMode brake, String canBus) {
         super(motorID, canBus);
-        getConfigurator().apply(new TalonFXConfiguration());
-        setMode(brake);
+        configure(new TalonFXConfiguration(), brake, null);
+    }
+
+    /**
+     * Applies the configuration with the idle mode and inversion merged into it.
+     * A full configuration resets every other setting to its default, so a
+     * single apply is needed. The apply is handled by the
+     * {@link DeviceConfigurator} and skipped when the {@link ConfigurationCache}
+     * knows the device already has it. While a batch is open, idle mode and
+     * inversion changes are merged into the pending configuration instead of
+     * being overwritten by it
+     * 
+     * @param configuration Motor configuration, it is copied before changing it
+     * @param idleMode      Idle mode, or null to keep the one of the
+     *                      configuration
+     * @param isInverted    Inverted state, or null to keep the one of the
+     *                      configuration
+     */
+    private void configure(TalonFXConfiguration configuration, GlobalIdleMode idleMode, Boolean isInverted) {
+        TalonFXConfiguration merged = new TalonFXConfiguration();
+        merged.deserialize(configuration.serialize());
+
+        if (idleMode != null) {
+            merged.MotorOutput.NeutralMode = IdleManager.idleToNeutral(idleMode);
+        }
+        if (isInverted != null) {
+            merged.MotorOutput.Inverted = isInverted ? InvertedValue.Clockwise_Positive
+                    : InvertedValue.CounterClockwise_Positive;
+        }
+
+        synchronized (configurationLock) {
+            pendingConfiguration = merged;
+        }
+        DeviceConfigurator.getInstance().submit(
+                DeviceConfigurator.deviceName("TalonFX", getDeviceID(), getNetwork()),
+                this::applyPendingConfiguration);
+    }
+
+    /**
+     * Applies the pending configuration, with any change merged into it since it
+     * was submitted
+     * 
+     * @param timeoutSeconds Max time to wait for the device
+     * @return Status of the apply
+     */
+    private StatusCode applyPendingConfiguration(double timeoutSeconds) {
+        TalonFXConfiguration configuration = new TalonFXConfiguration();
+        synchronized (configurationLock) {
+            if (pendingConfiguration == null) {
+                return StatusCode.OK;
+            }
+            configuration.deserialize(pendingConfiguration.serialize());
+        }
+
+        String deviceName = DeviceConfigurator.deviceName("TalonFX", getDeviceID(), getNetwork());
+        StatusCode status = ConfigurationCache.getInstance().applyIfChanged(deviceName,
+                ConfigurationCache.fingerprint(configuration.serialize()),
+                timeout -> configurationMatches(configuration, timeout),
+                timeout -> getConfigurator().apply(configuration, timeout)).apply(timeoutSeconds);
+
+        // Kept after a failure so the retries apply it
+        if (status.isOK()) {
+            synchronized (configurationLock) {
+                pendingConfiguration = null;
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Gets the configuration still waiting for the open batch, so changes can be
+     * merged into it
+     * 
+     * @return Pending configuration, or null if it was applied or no batch is
+     *         open
+     */
+    private TalonFXConfiguration getBatchedConfiguration() {
+        return DeviceConfigurator.getInstance().isBatching() ? pendingConfiguration : null;
+    }
+
+    /**
+     * Reads back the full configuration of the device in a single request, so a
+     * swapped or factory reset controller is configured again. Values the device
+     * rounds still match
+     * 
+     * @param expected       Expected configuration
+     * @param timeoutSeconds Max time to wait for the device
+     * @return True if the device has the expected configuration
+     */
+    private boolean configurationMatches(TalonFXConfiguration expected, double timeoutSeconds) {
+        TalonFXConfiguration actual = new TalonFXConfiguration();
+        return getConfigurator().refresh(actual, timeoutSeconds).isOK()
+                && ConfigurationCache.phoenixConfigsMatch(expected, actual);
     }
 
     @Override
     public void outputTelemetry(String tabName) {
+        if (ReplayPerformanceMode.getInstance().isEnabled()) {
+            return;
+        }
         Shuffleboard.getTab(tabName).add("TalonFX Motor " + getDeviceID() + "Voltage:", getSupplyVoltage());
         Shuffleboard.getTab(tabName).add("TalonFX Motor " + getDeviceID() + "Temperature", getDeviceTemp());
     }
@@ -195,11 +277,36 @@ public class SuperTalonFX extends TalonFX implements HyperMotorController {
      */
     @Override
     public void setMode(GlobalIdleMode idleMode) {
+        synchronized (configurationLock) {
+            TalonFXConfiguration pending = getBatchedConfiguration();
+            if (pending != null) {
+                pending.MotorOutput.NeutralMode = IdleManager.idleToNeutral(idleMode);
+                return;
+            }
+        }
         MotorOutputConfigs configs = new MotorOutputConfigs();
         configs.NeutralMode = IdleManager.idleToNeutral(idleMode);
         getConfigurator().apply(configs);
     }
 
+    /**
+     * Sets the inverted state of the motor controller
+     * 
+     * @param isInverted Inverted state of the motor controller
+     */
+    @Override
+    public void setInverted(boolean isInverted) {
+        synchronized (configurationLock) {
+            TalonFXConfiguration pending = getBatchedConfiguration();
+            if (pending != null) {
+                pending.MotorOutput.Inverted = isInverted ? InvertedValue.Clockwise_Positive
+                        : InvertedValue.CounterClockwise_Positive;
+                return;
+            }
+        }
+        super.setInverted(isInverted);
+    }
+
     /**
      * Sets the current limit of the motor controller
      * 
@@ -230,7 +337,7 @@ public class SuperTalonFX extends TalonFX implements HyperMotorController {
      * @return the position of the motor in meters
      */
     public double getPosition(double circumference, double gearRatio) {
-        return Conversions.falconToMeters(getPosition().getValue(), circumference, gearRatio);
+        return Conversions.falconToMeters(getCachedPosition().getValue(), circumference, gearRatio);
     }
 
     /**
@@ -241,7 +348,7 @@ public class SuperTalonFX extends TalonFX implements HyperMotorController {
      * @return the angle of the motor in degrees
      */
     public double getAngle(double gearRatio) {
-        return Conversions.falconToDegrees(getPosition().getValue(), gearRatio);
+        return Conversions.falconToDegrees(getCachedPosition().getValue(), gearRatio);
     }
 
     /**
@@ -253,7 +360,46 @@ public class SuperTalonFX extends TalonFX implements HyperMotorController {
      * @return the velocity of the motor in meters per second
      */
     public double getVelocity(double circumference, double gearRatio) {
-        return Conversions.falconToMPS(getPosition().getValue(), circumference, gearRatio);
+        // Phoenix 6 reports rotor rotations per second, not counts per 100 ms
+        return Conversions.RPSToMPS(getCachedVelocity().getValue() / gearRatio, circumference);
+    }
+
+    /**
+     * Gets the position signal, refreshed at most once per loop by the
+     * {@link StatusSignalCache}
+     * 
+     * @return Position signal
+     */
+    private StatusSignal<Double> getCachedPosition() {
+        if (cachedPosition == null) {
+            registerCachedSignals();
+        }
+        StatusSignalCache.getInstance().refreshIfStale();
+        return cachedPosition;
+    }
+
+    /**
+     * Gets the velocity signal, refreshed at most once per loop by the
+     * {@link StatusSignalCache}
+     * 
+     * @return Velocity signal
+     */
+    private StatusSignal<Double> getCachedVelocity() {
+        if (cachedVelocity == null) {
+            registerCachedSignals();
+        }
+        StatusSignalCache.getInstance().refreshIfStale();
+        return cachedVelocity;
+    }
+
+    /**
+     * Looks up the signals used by the unit conversion getters once and
+     * registers them in the {@link StatusSignalCache}
+     */
+    private void registerCachedSignals() {
+        cachedPosition = getPosition();
+        cachedVelocity = getVelocity();
+        StatusSignalCache.getInstance().register(this, cachedPosition, cachedVelocity);
     }
 
     /**
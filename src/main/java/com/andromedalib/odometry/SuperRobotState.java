@@ -4,25 +4,214 @@
 
 package com.andromedalib.odometry;
 
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
-public class SuperRobotState extends SubsystemBase{
-    public void addOdometryObservations(double currentTimeSencods, Rotation2d gyroAngle, SwerveModulePosition[] modulePositions) {
+/**
+ * Keeps track of the estimated pose of the robot.
+ *
+ * <p>
+ * Observations may be added from any thread (e.g. the odometry sampling
+ * thread). The latest estimate is published through an atomic reference, so
+ * {@link #getPose()} never blocks on the estimator.
+ */
+public class SuperRobotState extends SubsystemBase {
+    private static SuperRobotState instance = null;
+
+    /* Time it takes for odometry to be fully trusted again after a bad sample */
+    private static final double TRUST_RECOVERY_SECONDS = 0.5;
+
+    private final SwerveDriveKinematics kinematics;
+    private SwerveDrivePoseEstimator poseEstimator = null;
+
+    private Rotation2d lastGyroAngle = new Rotation2d();
+    private SwerveModulePosition[] lastModulePositions = null;
+
+    private double odometryTrust = 1.0;
+    private double lastOdometryTimestamp = 0.0;
+
+    private final AtomicReference<TimestampedPose> latestPose = new AtomicReference<>(
+            new TimestampedPose(0.0, new Pose2d()));
+
+    /**
+     * Creates a SuperRobotState that does not estimate a pose by itself. Override
+     * the observation methods to implement custom estimation
+     */
+    public SuperRobotState() {
+        this(null);
+    }
+
+    /**
+     * Creates a SuperRobotState that estimates the pose with a
+     * {@link SwerveDrivePoseEstimator}. The first one created is used by
+     * {@link #getPose()} and {@link #resetPose(Pose2d)} unless another one is
+     * set with {@link #setInstance(SuperRobotState)}
+     *
+     * @param kinematics Kinematics of the drivetrain
+     */
+    public SuperRobotState(SwerveDriveKinematics kinematics) {
+        this.kinematics = kinematics;
+        if (instance == null) {
+            instance = this;
+        }
+    }
+
+    /**
+     * Sets the state used by {@link #getPose()} and {@link #resetPose(Pose2d)}
+     *
+     * @param robotState State of the robot, or null to clear it
+     */
+    public static void setInstance(SuperRobotState robotState) {
+        instance = robotState;
+    }
+
+    /**
+     * Gets the state used by {@link #getPose()} and {@link #resetPose(Pose2d)}
+     *
+     * @return State of the robot, or null if none was created
+     */
+    public static SuperRobotState getInstance() {
+        return instance;
+    }
+
+    @Override
+    public void periodic() {
+        Logger.recordOutput("RobotState/EstimatedPose", getLatestPose().pose);
+        Logger.recordOutput("RobotState/OdometryTrust", odometryTrust);
+    }
+
+    /**
+     * Adds an odometry observation. Safe to call from the odometry thread
+     *
+     * @param currentTimeSencods Timestamp of the observation in seconds
+     * @param gyroAngle          Gyro angle at the time of the observation
+     * @param modulePositions    Module positions at the time of the observation
+     */
+    public synchronized void addOdometryObservations(double currentTimeSencods, Rotation2d gyroAngle,
+            SwerveModulePosition[] modulePositions) {
+        if (kinematics == null) {
+            return;
+        }
 
+        if (poseEstimator == null) {
+            poseEstimator = new SwerveDrivePoseEstimator(kinematics, gyroAngle, modulePositions, new Pose2d());
+        } else {
+            poseEstimator.updateWithTime(currentTimeSencods, gyroAngle, modulePositions);
+        }
+        lastGyroAngle = gyroAngle;
+        lastModulePositions = modulePositions;
+
+        latestPose.set(new TimestampedPose(currentTimeSencods, poseEstimator.getEstimatedPosition()));
+    }
+
+    /**
+     * Adds an odometry observation with a trust factor. Untrusted samples (e.g.
+     * detected wheel slip) temporarily give more weight to vision observations.
+     * Safe to call from the odometry thread
+     *
+     * @param currentTimeSencods Timestamp of the observation in seconds
+     * @param gyroAngle          Gyro angle at the time of the observation
+     * @param modulePositions    Module positions at the time of the observation
+     * @param sampleTrust        Trust of the observation, from 0 to 1
+     */
+    public synchronized void addOdometryObservations(double currentTimeSencods, Rotation2d gyroAngle,
+            SwerveModulePosition[] modulePositions, double sampleTrust) {
+        odometryTrust = Math.min(1.0,
+                odometryTrust + Math.max(0.0, currentTimeSencods - lastOdometryTimestamp) / TRUST_RECOVERY_SECONDS);
+        odometryTrust = Math.max(0.01, Math.min(odometryTrust, sampleTrust));
+        lastOdometryTimestamp = currentTimeSencods;
+
+        addOdometryObservations(currentTimeSencods, gyroAngle, modulePositions);
     }
 
     public void addVisionObservations() {
 
     }
 
+    /**
+     * Adds a vision observation. Safe to call from any thread
+     *
+     * @param visionPose       Pose measured by the vision system
+     * @param timestampSeconds Timestamp of the measurement in seconds
+     * @param stdDevs          Standard deviations of the measurement (x, y,
+     *                         theta)
+     */
+    public synchronized void addVisionObservations(Pose2d visionPose, double timestampSeconds,
+            Matrix<N3, N1> stdDevs) {
+        if (poseEstimator == null) {
+            return;
+        }
+
+        // Vision is trusted more while odometry is unreliable
+        poseEstimator.addVisionMeasurement(visionPose, timestampSeconds,
+                odometryTrust < 1.0 ? stdDevs.times(odometryTrust) : stdDevs);
+        latestPose.set(new TimestampedPose(getLatestPose().timestampSeconds, poseEstimator.getEstimatedPosition()));
+    }
+
+    /**
+     * Resets the estimator to a known pose
+     *
+     * @param pose New pose
+     */
+    public synchronized void reset(Pose2d pose) {
+        if (poseEstimator != null) {
+            poseEstimator.resetPosition(lastGyroAngle, lastModulePositions, pose);
+        }
+        latestPose.set(new TimestampedPose(getLatestPose().timestampSeconds, pose));
+    }
+
+    /**
+     * Gets the latest estimate together with the timestamp of the odometry sample
+     * it includes
+     *
+     * @return Latest {@link TimestampedPose}
+     */
+    public TimestampedPose getLatestPose() {
+        return latestPose.get();
+    }
+
+    /**
+     * Gets the latest estimated pose of the robot
+     *
+     * @return Estimated pose
+     */
     public static Pose2d getPose() {
-        return null;
+        if (instance == null) {
+            return new Pose2d();
+        }
+        return instance.getLatestPose().pose;
     }
 
+    /**
+     * Resets the estimated pose of the robot
+     *
+     * @param pose New pose
+     */
     public static void resetPose(Pose2d pose) {
+        if (instance != null) {
+            instance.reset(pose);
+        }
+    }
 
-    }    
+    /** Immutable pose estimate with the timestamp of its latest odometry sample */
+    public static final class TimestampedPose {
+        public final double timestampSeconds;
+        public final Pose2d pose;
+
+        public TimestampedPose(double timestampSeconds, Pose2d pose) {
+            this.timestampSeconds = timestampSeconds;
+            this.pose = pose;
+        }
+    }
 }
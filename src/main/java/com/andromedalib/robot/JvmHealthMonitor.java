@@ -0,0 +1,231 @@
+package com.andromedalib.robot;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import org.littletonrobotics.junction.Logger;
+
+import com.andromedalib.util.Alert;
+import com.andromedalib.util.Alert.AlertType;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Reports the health of the JVM as robot telemetry.
+ *
+ * <p>
+ * Garbage collections are received as JMX notifications, so their pause
+ * durations and the heap left after them are known exactly. The bytes
+ * allocated by the main thread and the time spent by the JIT compiler are
+ * sampled once per cycle. Everything is logged under {@code JVM/} and
+ * {@link Alert}s are raised when a threshold is crossed, so loop overruns can
+ * be matched with collections or compilation.
+ */
+public class JvmHealthMonitor {
+    private static JvmHealthMonitor instance = null;
+
+    /* Time an alert stays active after its threshold was crossed */
+    private static final double ALERT_HOLD_SECONDS = 5.0;
+
+    private boolean enabled = false;
+    private boolean listening = false;
+
+    /* Pools counted as heap, the collection notifications also report the non-heap ones */
+    private final Set<String> heapPoolNames = findHeapPoolNames();
+
+    private double maxPauseMs = 10.0;
+    private double maxHeapFraction = 0.8;
+    private double maxAllocatedBytesPerCycle = 1e6;
+
+    /* Written from the JMX notification thread */
+    private double pendingPauseMs = 0.0;
+    private int pendingCollections = 0;
+    private long heapUsedAfterGc = 0;
+
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final CompilationMXBean compilationBean;
+    private final long maxHeapBytes;
+
+    private long lastAllocatedBytes = -1;
+    private long lastCompilationMs = -1;
+    private long totalCollections = 0;
+
+    private double lastPauseAlertTime = Double.NEGATIVE_INFINITY;
+    private double lastHeapAlertTime = Double.NEGATIVE_INFINITY;
+    private double lastAllocationAlertTime = Double.NEGATIVE_INFINITY;
+
+    private final Alert pauseAlert = new Alert("Long garbage collection pause", AlertType.WARNING);
+    private final Alert heapAlert = new Alert("Heap almost full after garbage collection", AlertType.WARNING);
+    private final Alert allocationAlert = new Alert("High allocation rate in the main loop", AlertType.WARNING);
+
+    public static JvmHealthMonitor getInstance() {
+        if (instance == null) {
+            instance = new JvmHealthMonitor();
+        }
+        return instance;
+    }
+
+    private JvmHealthMonitor() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        threadBean = bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+                        ? (com.sun.management.ThreadMXBean) bean
+                        : null;
+
+        CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+        compilationBean = compilation != null && compilation.isCompilationTimeMonitoringSupported()
+                ? compilation
+                : null;
+
+        maxHeapBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax();
+    }
+
+    /**
+     * Enables or disables the monitor. Garbage collection notifications are
+     * subscribed to the first time it is enabled
+     *
+     * @param enabled True to monitor the JVM
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (enabled && !listening) {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (collector instanceof NotificationEmitter) {
+                    ((NotificationEmitter) collector).addNotificationListener(
+                            (notification, handback) -> onNotification(notification), null, null);
+                }
+            }
+            if (threadBean != null) {
+                threadBean.setThreadAllocatedMemoryEnabled(true);
+            }
+            listening = true;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets the thresholds that raise alerts
+     *
+     * @param maxPauseMs                Longest acceptable collection pause in
+     *                                  milliseconds
+     * @param maxHeapFraction           Fraction of the max heap that may be in
+     *                                  use after a collection
+     * @param maxAllocatedBytesPerCycle Bytes the main thread may allocate per
+     *                                  cycle
+     */
+    public synchronized void setThresholds(double maxPauseMs, double maxHeapFraction,
+            double maxAllocatedBytesPerCycle) {
+        this.maxPauseMs = maxPauseMs;
+        this.maxHeapFraction = maxHeapFraction;
+        this.maxAllocatedBytesPerCycle = maxAllocatedBytesPerCycle;
+    }
+
+    /** Receives a garbage collection notification */
+    private synchronized void onNotification(Notification notification) {
+        if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+                .from((CompositeData) notification.getUserData());
+
+        pendingPauseMs += info.getGcInfo().getDuration();
+        pendingCollections++;
+
+        long used = 0;
+        for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+            if (heapPoolNames.contains(pool.getKey())) {
+                used += pool.getValue().getUsed();
+            }
+        }
+        heapUsedAfterGc = used;
+    }
+
+    /**
+     * Finds the memory pools that belong to the heap, e.g. the young and old
+     * generations, but not Metaspace or the code cache
+     *
+     * @return Names of the heap pools
+     */
+    private static Set<String> findHeapPoolNames() {
+        Set<String> names = new HashSet<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                names.add(pool.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Samples and logs the JVM state. Run this once per cycle from the main
+     * thread
+     */
+    public void update() {
+        if (!enabled) {
+            return;
+        }
+
+        double pauseMs;
+        int collections;
+        long heapAfterGc;
+        synchronized (this) {
+            pauseMs = pendingPauseMs;
+            collections = pendingCollections;
+            heapAfterGc = heapUsedAfterGc;
+            pendingPauseMs = 0.0;
+            pendingCollections = 0;
+        }
+        totalCollections += collections;
+
+        long allocatedBytes = 0;
+        if (threadBean != null) {
+            long total = threadBean.getCurrentThreadAllocatedBytes();
+            allocatedBytes = lastAllocatedBytes < 0 ? 0 : total - lastAllocatedBytes;
+            lastAllocatedBytes = total;
+        }
+
+        long compilationMs = 0;
+        if (compilationBean != null) {
+            long total = compilationBean.getTotalCompilationTime();
+            compilationMs = lastCompilationMs < 0 ? 0 : total - lastCompilationMs;
+            lastCompilationMs = total;
+        }
+
+        double heapFraction = maxHeapBytes > 0 ? (double) heapAfterGc / maxHeapBytes : 0.0;
+
+        Logger.recordOutput("JVM/GCPauseMS", pauseMs);
+        Logger.recordOutput("JVM/GCCount", totalCollections);
+        Logger.recordOutput("JVM/HeapAfterGCMB", heapAfterGc / 1e6);
+        Logger.recordOutput("JVM/AllocatedBytesPerCycle", allocatedBytes);
+        Logger.recordOutput("JVM/CompilationMS", compilationMs);
+
+        double now = Timer.getFPGATimestamp();
+        if (pauseMs > maxPauseMs) {
+            lastPauseAlertTime = now;
+        }
+        if (heapFraction > maxHeapFraction) {
+            lastHeapAlertTime = now;
+        }
+        if (allocatedBytes > maxAllocatedBytesPerCycle) {
+            lastAllocationAlertTime = now;
+        }
+        pauseAlert.set(now - lastPauseAlertTime < ALERT_HOLD_SECONDS);
+        heapAlert.set(now - lastHeapAlertTime < ALERT_HOLD_SECONDS);
+        allocationAlert.set(now - lastAllocationAlertTime < ALERT_HOLD_SECONDS);
+    }
+}
@@ -0,0 +1,241 @@
+package com.andromedalib.robot;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import edu.wpi.first.wpilibj2.command.Subsystem;
+
+/**
+ * Times the sections of the main robot loop.
+ *
+ * <p>
+ * Sections are identified by the integer returned by
+ * {@link #registerSection(String)} and timed with {@link System#nanoTime()}.
+ * The time spent in each section during a cycle is kept in a ring buffer of
+ * primitives, and every {@link #PUBLISH_CYCLES} cycles the p50, p95 and max of
+ * every section are published to AdvantageKit as parallel arrays. While
+ * disabled, {@link #start(int)} and {@link #stop(int)} return right away.
+ *
+ * <p>
+ * {@link SuperRobot} times the input refresh, the whole subsystem periodic
+ * phase (through two marker subsystems registered first and last) and every
+ * command execute. The logger flush is already reported by AdvantageKit as
+ * {@code LoggedRobot/LogPeriodicMS}.
+ */
+public class LoopProfiler {
+    private static LoopProfiler instance = null;
+
+    /* Amount of cycles kept for the percentiles */
+    private static final int WINDOW = 128;
+    /* Percentiles are published once every this amount of cycles */
+    public static final int PUBLISH_CYCLES = 50;
+
+    private boolean enabled = false;
+
+    private final Map<String, Integer> sectionIds = new HashMap<>();
+    /* Keyed by name, commands created on every schedule share their section */
+    private final Map<String, Integer> commandSections = new HashMap<>();
+    private String[] names = new String[0];
+    private long[] startNanos = new long[0];
+    private long[] cycleNanos = new long[0];
+    private boolean[] touched = new boolean[0];
+    private long[][] samples = new long[0][];
+    private int[] sampleCounts = new int[0];
+
+    private final long[] sortScratch = new long[WINDOW];
+    private double[] p50 = new double[0];
+    private double[] p95 = new double[0];
+    private double[] max = new double[0];
+    private int cyclesSincePublish = 0;
+
+    private long commandsStartNanos = 0;
+    private final int subsystemsSection;
+
+    public static LoopProfiler getInstance() {
+        if (instance == null) {
+            instance = new LoopProfiler();
+        }
+        return instance;
+    }
+
+    private LoopProfiler() {
+        subsystemsSection = registerSection("Subsystems");
+    }
+
+    /**
+     * Enables or disables profiling
+     *
+     * @param enabled True to time every section
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Registers a section. Registering an existing name returns its id
+     *
+     * @param name Section name
+     * @return Section id
+     */
+    public synchronized int registerSection(String name) {
+        Integer existing = sectionIds.get(name);
+        if (existing != null) {
+            return existing;
+        }
+
+        int id = names.length;
+        int size = id + 1;
+        names = Arrays.copyOf(names, size);
+        startNanos = Arrays.copyOf(startNanos, size);
+        cycleNanos = Arrays.copyOf(cycleNanos, size);
+        touched = Arrays.copyOf(touched, size);
+        samples = Arrays.copyOf(samples, size);
+        sampleCounts = Arrays.copyOf(sampleCounts, size);
+        p50 = new double[size];
+        p95 = new double[size];
+        max = new double[size];
+
+        names[id] = name;
+        samples[id] = new long[WINDOW];
+        sectionIds.put(name, id);
+        return id;
+    }
+
+    /**
+     * Starts timing a section
+     *
+     * @param section Section id
+     */
+    public void start(int section) {
+        if (!enabled) {
+            return;
+        }
+        startNanos[section] = System.nanoTime();
+    }
+
+    /**
+     * Stops timing a section. A section may be timed several times per cycle,
+     * its times are added
+     *
+     * @param section Section id
+     */
+    public void stop(int section) {
+        if (!enabled) {
+            return;
+        }
+        cycleNanos[section] += System.nanoTime() - startNanos[section];
+        touched[section] = true;
+    }
+
+    /**
+     * Installs the marker subsystems and command callbacks used to time the
+     * {@link CommandScheduler}. The first marker must be registered before any
+     * other subsystem, and {@link #installLastMarker()} after every subsystem
+     */
+    public void installFirstMarker() {
+        CommandScheduler.getInstance().registerSubsystem(new Marker(true));
+        CommandScheduler.getInstance().onCommandExecute(this::onCommandExecute);
+    }
+
+    /**
+     * Installs the marker subsystem that runs after every other subsystem
+     */
+    public void installLastMarker() {
+        CommandScheduler.getInstance().registerSubsystem(new Marker(false));
+    }
+
+    /**
+     * Called after every command execute. The time since the previous command
+     * (or since the last subsystem for the first command) is assigned to it, so
+     * the first command also includes the trigger polling
+     */
+    private void onCommandExecute(Command command) {
+        if (!enabled) {
+            return;
+        }
+        String name = command.getName();
+        Integer section = commandSections.get(name);
+        if (section == null) {
+            section = registerSection("Commands/" + name);
+            commandSections.put(name, section);
+        }
+
+        long now = System.nanoTime();
+        cycleNanos[section] += now - commandsStartNanos;
+        touched[section] = true;
+        commandsStartNanos = now;
+    }
+
+    /**
+     * Stores the times of the finished cycle. Run this once at the end of every
+     * loop cycle
+     */
+    public void endCycle() {
+        if (!enabled) {
+            return;
+        }
+
+        for (int i = 0; i < names.length; i++) {
+            if (touched[i]) {
+                samples[i][sampleCounts[i] % WINDOW] = cycleNanos[i];
+                sampleCounts[i]++;
+            }
+            cycleNanos[i] = 0;
+            touched[i] = false;
+        }
+
+        if (++cyclesSincePublish >= PUBLISH_CYCLES) {
+            cyclesSincePublish = 0;
+            publish();
+        }
+    }
+
+    /** Computes the percentiles of every section and logs them */
+    private void publish() {
+        for (int i = 0; i < names.length; i++) {
+            int count = Math.min(sampleCounts[i], WINDOW);
+            if (count == 0) {
+                p50[i] = p95[i] = max[i] = 0.0;
+                continue;
+            }
+            System.arraycopy(samples[i], 0, sortScratch, 0, count);
+            Arrays.sort(sortScratch, 0, count);
+            p50[i] = sortScratch[(count - 1) / 2] / 1e6;
+            p95[i] = sortScratch[(int) Math.ceil(0.95 * count) - 1] / 1e6;
+            max[i] = sortScratch[count - 1] / 1e6;
+        }
+
+        Logger.recordOutput("LoopProfiler/Sections", names);
+        Logger.recordOutput("LoopProfiler/P50MS", p50);
+        Logger.recordOutput("LoopProfiler/P95MS", p95);
+        Logger.recordOutput("LoopProfiler/MaxMS", max);
+    }
+
+    /** Empty subsystem that marks the start or the end of the subsystem phase */
+    private class Marker implements Subsystem {
+        private final boolean first;
+
+        private Marker(boolean first) {
+            this.first = first;
+        }
+
+        @Override
+        public void periodic() {
+            if (first) {
+                start(subsystemsSection);
+            } else {
+                stop(subsystemsSection);
+                commandsStartNanos = System.nanoTime();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.andromedalib.robot;
+
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Measures the real period of the main robot loop.
+ *
+ * <p>
+ * {@link SuperRobot} updates this service at the start of every cycle using
+ * the AdvantageKit cycle timestamp, so the measured period is also reproduced
+ * during log replay. Code that integrates over time (discretization,
+ * simulation) should read {@link #getPeriodSeconds()} instead of assuming a
+ * fixed 20 ms loop.
+ */
+public class LoopTimer {
+    private static LoopTimer instance = null;
+
+    /* Measured periods are clamped to these multiples of the nominal period */
+    private static final double MIN_PERIOD_FACTOR = 0.25;
+    private static final double MAX_PERIOD_FACTOR = 5.0;
+
+    private double nominalPeriodSeconds = 0.02;
+    private double periodSeconds = 0.02;
+    private long lastTimestampMicros = -1;
+    private long cycleCount = 0;
+
+    public static LoopTimer getInstance() {
+        if (instance == null) {
+            instance = new LoopTimer();
+        }
+        return instance;
+    }
+
+    private LoopTimer() {
+    }
+
+    /**
+     * Sets the period the main loop is scheduled at. This is used until the first
+     * period is measured
+     *
+     * @param nominalPeriodSeconds Main loop period in seconds
+     */
+    public void setNominalPeriod(double nominalPeriodSeconds) {
+        this.nominalPeriodSeconds = nominalPeriodSeconds;
+        this.periodSeconds = nominalPeriodSeconds;
+        this.lastTimestampMicros = -1;
+    }
+
+    /**
+     * Measures the time elapsed since the last call. Run this once at the start of
+     * every loop cycle
+     */
+    public void update() {
+        update(Logger.getTimestamp());
+    }
+
+    /**
+     * Measures the time elapsed since the last call using the given timestamp.
+     * Used by headless simulation, which runs on a virtual clock
+     *
+     * @param timestampMicros Cycle timestamp in microseconds
+     */
+    public void update(long timestampMicros) {
+        if (lastTimestampMicros >= 0) {
+            double measured = (timestampMicros - lastTimestampMicros) / 1e6;
+            periodSeconds = Math.max(nominalPeriodSeconds * MIN_PERIOD_FACTOR,
+                    Math.min(nominalPeriodSeconds * MAX_PERIOD_FACTOR, measured));
+        }
+        lastTimestampMicros = timestampMicros;
+        cycleCount++;
+
+        Logger.recordOutput("LoopTimer/PeriodSeconds", periodSeconds);
+    }
+
+    /**
+     * Gets the last measured loop period
+     *
+     * @return Loop period in seconds
+     */
+    public double getPeriodSeconds() {
+        return periodSeconds;
+    }
+
+    /**
+     * Gets the period the main loop is scheduled at
+     *
+     * @return Nominal loop period in seconds
+     */
+    public double getNominalPeriodSeconds() {
+        return nominalPeriodSeconds;
+    }
+
+    /**
+     * Gets the amount of cycles measured since the robot started
+     *
+     * @return Cycle count
+     */
+    public long getCycleCount() {
+        return cycleCount;
+    }
+}
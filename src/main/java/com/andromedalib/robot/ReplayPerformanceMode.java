@@ -0,0 +1,130 @@
+package com.andromedalib.robot;
+
+import org.littletonrobotics.junction.LogFileUtil;
+import org.littletonrobotics.junction.LoggedRobot;
+import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.wpilog.WPILOGReader;
+import org.littletonrobotics.junction.wpilog.WPILOGWriter;
+
+import com.andromedalib.util.Alert;
+
+import edu.wpi.first.wpilibj.livewindow.LiveWindow;
+
+/**
+ * Replays AdvantageKit logs as fast as possible.
+ *
+ * <p>
+ * Call {@link #configure(LoggedRobot, String, boolean)} from the robot
+ * constructor instead of adding the replay source yourself, before
+ * {@code Logger.start()}. The loop then runs without waiting for its period,
+ * dashboard publishing (alerts, motor telemetry tabs and LiveWindow) is
+ * skipped, and the library diagnostics that measure the replaying computer
+ * instead of the robot ({@link LoopProfiler}, {@link JvmHealthMonitor},
+ * {@link WarmupManager}) are turned off and should not be enabled again.
+ *
+ * <p>
+ * Throughput is printed every few seconds and once more when the replay ends
+ * and the JVM exits.
+ */
+public class ReplayPerformanceMode {
+    private static ReplayPerformanceMode instance = null;
+
+    private static final double REPORT_PERIOD_SECONDS = 5.0;
+
+    private volatile boolean enabled = false;
+    private volatile long cycles = 0;
+    private volatile long startNanos = 0;
+    private long lastReportNanos = 0;
+    private long lastReportCycles = 0;
+
+    public static ReplayPerformanceMode getInstance() {
+        if (instance == null) {
+            instance = new ReplayPerformanceMode();
+        }
+        return instance;
+    }
+
+    private ReplayPerformanceMode() {
+    }
+
+    /**
+     * Replays a log in performance mode
+     *
+     * @param robot          Robot being replayed
+     * @param logPath        Path of the log to replay, e.g. from
+     *                       {@link LogFileUtil#findReplayLog()}
+     * @param writeOutputLog True to write the replayed outputs to a log with the
+     *                       "_sim" suffix. Skipping it is faster when only the
+     *                       console output is needed
+     */
+    public void configure(LoggedRobot robot, String logPath, boolean writeOutputLog) {
+        enabled = true;
+
+        robot.setUseTiming(false);
+        Logger.setReplaySource(new WPILOGReader(logPath));
+        if (writeOutputLog) {
+            Logger.addDataReceiver(new WPILOGWriter(LogFileUtil.addPathSuffix(logPath, "_sim")));
+        }
+
+        LiveWindow.disableAllTelemetry();
+        Alert.setDashboardPublishing(false);
+        LoopProfiler.getInstance().setEnabled(false);
+        JvmHealthMonitor.getInstance().setEnabled(false);
+        WarmupManager.getInstance().setEnabled(false);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::printSummary, "ReplayPerformanceSummary"));
+    }
+
+    /**
+     * Checks if a log is being replayed in performance mode. Dashboard
+     * publishing and non-essential outputs are skipped while it is
+     *
+     * @return True if performance mode is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Counts a replayed cycle and prints the throughput every few seconds. Run
+     * this once per cycle
+     */
+    public void recordCycle() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (cycles == 0) {
+            startNanos = now;
+            lastReportNanos = now;
+        }
+        cycles++;
+
+        double elapsedSeconds = (now - lastReportNanos) / 1e9;
+        if (elapsedSeconds >= REPORT_PERIOD_SECONDS) {
+            System.out.println(String.format("[ReplayPerformanceMode] %.0f cycles/s, %d cycles replayed",
+                    (cycles - lastReportCycles) / elapsedSeconds, cycles));
+            lastReportNanos = now;
+            lastReportCycles = cycles;
+        }
+    }
+
+    /**
+     * Gets the mean throughput since the first replayed cycle
+     *
+     * @return Cycles replayed per second
+     */
+    public double getCyclesPerSecond() {
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        return cycles == 0 || elapsedSeconds <= 0.0 ? 0.0 : cycles / elapsedSeconds;
+    }
+
+    /** Prints the throughput of the whole replay */
+    private void printSummary() {
+        double elapsedSeconds = cycles == 0 ? 0.0 : (System.nanoTime() - startNanos) / 1e9;
+        System.out.println(String.format(
+                "[ReplayPerformanceMode] Replayed %d cycles (%.1f s of robot time) in %.1f s, %.0f cycles/s",
+                cycles, cycles * LoopTimer.getInstance().getNominalPeriodSeconds(), elapsedSeconds,
+                getCyclesPerSecond()));
+    }
+}
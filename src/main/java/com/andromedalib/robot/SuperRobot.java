@@ -4,6 +4,11 @@
 package com.andromedalib.robot;
 
 import org.littletonrobotics.junction.LoggedRobot;
+import org.littletonrobotics.junction.Logger;
+
+import com.andromedalib.util.CANBusPlanner;
+import com.andromedalib.util.DeviceConfigurator;
+import com.andromedalib.util.StatusSignalCache;
 
 import edu.wpi.first.cameraserver.CameraServer;
 import edu.wpi.first.wpilibj2.command.Command;
@@ -16,6 +21,30 @@ public class SuperRobot extends LoggedRobot {
 
     private boolean useCamera;
 
+    private final int readInputsSection = LoopProfiler.getInstance().registerSection("ReadInputs");
+    private final int schedulerSection = LoopProfiler.getInstance().registerSection("Scheduler");
+    private final int robotPeriodicSection = LoopProfiler.getInstance().registerSection("RobotPeriodic");
+
+    /**
+     * Creates a SuperRobot running at the default 20 ms period
+     */
+    public SuperRobot() {
+        this(LoggedRobot.defaultPeriodSecs);
+    }
+
+    /**
+     * Creates a SuperRobot running at a custom period. Library code reads the
+     * measured period from the {@link LoopTimer}, so faster loops need no other
+     * changes
+     * 
+     * @param periodSeconds Main loop period in seconds
+     */
+    public SuperRobot(double periodSeconds) {
+        super(periodSeconds);
+        LoopTimer.getInstance().setNominalPeriod(periodSeconds);
+        LoopProfiler.getInstance().installFirstMarker();
+    }
+
     /**
      * Instantiates the {@link SuperRobotContainer}. Run this method before doing
      * anything else
@@ -39,25 +68,68 @@ public class SuperRobot extends LoggedRobot {
 
     /**
      * Initiates all basic robot functions. Run super.robotInit() to run this code
-     * if overriding
+     * if overriding. Devices created in initSubsystems() are configured
+     * concurrently by the {@link DeviceConfigurator}. Hot paths are warmed up by
+     * the {@link WarmupManager} if enabled
      */
     @Override
     public void robotInit() {
+        DeviceConfigurator.getInstance().beginBatch();
         container.initSubsystems();
+        DeviceConfigurator.getInstance().applyAll();
+        CANBusPlanner.getInstance().apply();
+
         container.configureBindings();
+        LoopProfiler.getInstance().installLastMarker();
 
-        if (useCamera)
+        if (useCamera && !ReplayPerformanceMode.getInstance().isEnabled())
             CameraServer.startAutomaticCapture();
+
+        WarmupManager.getInstance().runInit();
     }
 
     /**
      * Constantly runs while the robot is on. Run super.robotPeriodic() to run this
      * code
-     * if overriding
+     * if overriding. Every signal registered in the {@link StatusSignalCache} is
+     * read before the {@link CommandScheduler} runs, so subsystems only use cached
+     * values. Enable the {@link LoopProfiler} for a per section breakdown and the
+     * {@link JvmHealthMonitor} for garbage collection and JIT telemetry. Replay
+     * throughput is reported when the {@link ReplayPerformanceMode} is enabled
      */
     @Override
     public void robotPeriodic() {
+        long cycleStart = System.nanoTime();
+        LoopProfiler profiler = LoopProfiler.getInstance();
+        profiler.start(robotPeriodicSection);
+        LoopTimer.getInstance().update();
+
+        long readInputsStart = Logger.getRealTimestamp();
+        profiler.start(readInputsSection);
+        StatusSignalCache.getInstance().refreshAll();
+        profiler.stop(readInputsSection);
+        long schedulerStart = Logger.getRealTimestamp();
+
+        profiler.start(schedulerSection);
         CommandScheduler.getInstance().run();
+        profiler.stop(schedulerSection);
+
+        // Real time measurements describe the replaying computer, not the robot
+        boolean fastReplay = ReplayPerformanceMode.getInstance().isEnabled();
+        if (!fastReplay) {
+            Logger.recordOutput("LoopTimer/ReadInputsMS", (schedulerStart - readInputsStart) / 1000.0);
+            Logger.recordOutput("LoopTimer/SchedulerMS", (Logger.getRealTimestamp() - schedulerStart) / 1000.0);
+        }
+
+        profiler.stop(robotPeriodicSection);
+        profiler.endCycle();
+
+        JvmHealthMonitor.getInstance().update();
+        if (fastReplay) {
+            ReplayPerformanceMode.getInstance().recordCycle();
+        } else {
+            WarmupManager.getInstance().recordCycle((System.nanoTime() - cycleStart) / 1e9);
+        }
     }
 
     /**
@@ -71,10 +143,11 @@ public class SuperRobot extends LoggedRobot {
     /**
      * Constantly runs when robot is disabled. Run super.disabledPeriodic() to run
      * this code
-     * if overriding
+     * if overriding. Continues the {@link WarmupManager} tasks if enabled
      */
     @Override
     public void disabledPeriodic() {
+        WarmupManager.getInstance().runDisabled();
     }
 
     /**
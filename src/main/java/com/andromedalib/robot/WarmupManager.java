@@ -0,0 +1,243 @@
+package com.andromedalib.robot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.littletonrobotics.junction.Logger;
+
+import com.andromedalib.vision.LimelightHelpers;
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Warms up hot code paths before the robot is enabled.
+ *
+ * <p>
+ * The JIT compiles a method only after it has run many times, and classes are
+ * loaded the first time they are used, so the first seconds of autonomous run
+ * slower than the rest of the match. Registered tasks run hot paths with
+ * synthetic inputs during {@code robotInit} (up to a time budget) and then a
+ * few milliseconds per cycle in {@code disabledPeriodic}, until each one has
+ * run its amount of iterations. Tasks must not command any hardware.
+ *
+ * <p>
+ * The effect is measured by logging the loop times of the first cycles after
+ * the robot is enabled. Warmup is opt-in through {@link #setEnabled(boolean)}.
+ */
+public class WarmupManager {
+    private static WarmupManager instance = null;
+
+    /* Amount of enabled cycles whose loop times are reported */
+    private static final int FIRST_CYCLES = 50;
+
+    private boolean enabled = false;
+    private double initBudgetSeconds = 1.0;
+    private double cycleBudgetSeconds = 0.005;
+
+    private final List<WarmupTask> tasks = new ArrayList<>();
+    private int nextTask = 0;
+    private boolean defaultsRegistered = false;
+
+    private boolean wasEnabled = false;
+    private int firstCycleCount = FIRST_CYCLES;
+    private double firstCyclesMaxMs = 0.0;
+    private double firstCyclesTotalMs = 0.0;
+
+    public static WarmupManager getInstance() {
+        if (instance == null) {
+            instance = new WarmupManager();
+        }
+        return instance;
+    }
+
+    private WarmupManager() {
+    }
+
+    /**
+     * Enables or disables warmup. Enabling it also registers the vision and path
+     * generation tasks
+     *
+     * @param enabled True to warm up the registered tasks
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (enabled && !defaultsRegistered) {
+            defaultsRegistered = true;
+            registerDefaultTasks();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets the time warmup may take
+     *
+     * @param initBudgetSeconds  Time spent during robotInit
+     * @param cycleBudgetSeconds Time spent per disabled cycle
+     */
+    public void setBudget(double initBudgetSeconds, double cycleBudgetSeconds) {
+        this.initBudgetSeconds = initBudgetSeconds;
+        this.cycleBudgetSeconds = cycleBudgetSeconds;
+    }
+
+    /**
+     * Registers a hot path
+     *
+     * @param name       Name used when reporting
+     * @param iterations Times the task should run
+     * @param task       Task to run, must not command hardware
+     */
+    public void register(String name, int iterations, Runnable task) {
+        tasks.add(new WarmupTask(name, iterations, task));
+    }
+
+    /**
+     * Checks if every task finished its iterations
+     *
+     * @return True if warmup is complete
+     */
+    public boolean isComplete() {
+        for (WarmupTask task : tasks) {
+            if (!task.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs the tasks during robotInit, up to the init budget
+     */
+    public void runInit() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        run(initBudgetSeconds);
+        System.out.println(String.format("[WarmupManager] Warmed up for %.0f ms during robotInit",
+                (System.nanoTime() - start) / 1e6));
+    }
+
+    /**
+     * Runs the tasks during a disabled cycle, up to the cycle budget
+     */
+    public void runDisabled() {
+        if (!enabled) {
+            return;
+        }
+        run(cycleBudgetSeconds);
+    }
+
+    /**
+     * Runs the tasks round robin until every task is done or the budget is used
+     *
+     * @param budgetSeconds Time to spend
+     */
+    private void run(double budgetSeconds) {
+        long deadline = System.nanoTime() + (long) (budgetSeconds * 1e9);
+        int idleTasks = 0;
+
+        while (System.nanoTime() < deadline && idleTasks < tasks.size()) {
+            WarmupTask task = tasks.get(nextTask);
+            nextTask = (nextTask + 1) % tasks.size();
+
+            if (task.isDone()) {
+                idleTasks++;
+                continue;
+            }
+            idleTasks = 0;
+            task.runOnce();
+        }
+        Logger.recordOutput("Warmup/Complete", isComplete());
+    }
+
+    /**
+     * Records the loop time of a cycle. The first cycles after the robot is
+     * enabled are reported
+     *
+     * @param cycleSeconds Time the cycle took
+     */
+    public void recordCycle(double cycleSeconds) {
+        boolean isEnabled = DriverStation.isEnabled();
+        if (isEnabled && !wasEnabled) {
+            firstCycleCount = 0;
+            firstCyclesMaxMs = 0.0;
+            firstCyclesTotalMs = 0.0;
+        }
+        wasEnabled = isEnabled;
+
+        if (!isEnabled || firstCycleCount >= FIRST_CYCLES) {
+            return;
+        }
+        double cycleMs = cycleSeconds * 1000.0;
+        firstCyclesMaxMs = Math.max(firstCyclesMaxMs, cycleMs);
+        firstCyclesTotalMs += cycleMs;
+        firstCycleCount++;
+
+        if (firstCycleCount == FIRST_CYCLES) {
+            Logger.recordOutput("Warmup/FirstEnabledCycles/MaxMS", firstCyclesMaxMs);
+            Logger.recordOutput("Warmup/FirstEnabledCycles/MeanMS", firstCyclesTotalMs / FIRST_CYCLES);
+        }
+    }
+
+    /** Registers the vision decoding and path generation tasks */
+    private void registerDefaultTasks() {
+        double[] poseArray = new double[] { 1.0, 2.0, 0.0, 0.0, 0.0, 45.0, 30.0, 1.0, 0.0, 2.5, 0.3,
+                7.0, 0.1, -0.2, 0.3, 2.4, 2.6, 0.05 };
+        String json = "{\"Results\":{\"botpose\":[1,2,0,0,0,45],\"tl\":20.0,\"ts\":1.0,\"v\":1,"
+                + "\"Fiducial\":[{\"fID\":7,\"tx\":0.1,\"ty\":-0.2,\"ta\":0.3}]}}";
+        register("Vision", 2000, () -> {
+            LimelightHelpers.decodePoseEstimate(poseArray, 1000000L);
+            LimelightHelpers.parseResults(json);
+        });
+
+        PathConstraints constraints = new PathConstraints(3.0, 3.0, 2.0 * Math.PI, 4.0 * Math.PI);
+        register("PathGeneration", 100, () -> {
+            PathPlannerPath path = new PathPlannerPath(
+                    PathPlannerPath.bezierFromPoses(
+                            new Pose2d(1.0, 1.0, new Rotation2d()),
+                            new Pose2d(4.0, 3.0, Rotation2d.fromDegrees(90.0)),
+                            new Pose2d(7.0, 2.0, new Rotation2d())),
+                    constraints,
+                    new GoalEndState(0.0, Rotation2d.fromDegrees(180.0)));
+            path.getTrajectory(new ChassisSpeeds(), new Rotation2d());
+        });
+    }
+
+    private static class WarmupTask {
+        private final String name;
+        private final int iterations;
+        private final Runnable task;
+
+        private int completed = 0;
+        private boolean failed = false;
+
+        private WarmupTask(String name, int iterations, Runnable task) {
+            this.name = name;
+            this.iterations = iterations;
+            this.task = task;
+        }
+
+        private boolean isDone() {
+            return failed || completed >= iterations;
+        }
+
+        private void runOnce() {
+            try {
+                task.run();
+                completed++;
+            } catch (RuntimeException e) {
+                failed = true;
+                DriverStation.reportWarning("Warmup task " + name + " failed: " + e.getMessage(), false);
+            }
+        }
+    }
+}
@@ -4,10 +4,15 @@
 
 package com.andromedalib.sensors;
 
+import com.andromedalib.util.ConfigurationCache;
+import com.andromedalib.util.DeviceConfigurator;
 import com.ctre.phoenix6.configs.CANcoderConfiguration;
+import com.ctre.phoenix6.configs.MagnetSensorConfigs;
 import com.ctre.phoenix6.hardware.CANcoder;
 
 public class SuperCANCoder extends CANcoder {
+    /* The device stores the magnet offset with a resolution of 1/4096 rotations */
+    private static final double MAGNET_OFFSET_TOLERANCE = 1.0 / 4096.0;
 
     /**
      * SuperCANCoder constructor
@@ -18,8 +23,7 @@ public class SuperCANCoder extends CANcoder {
     public SuperCANCoder(int deviceID, CANcoderConfiguration configuration) {
         super(deviceID);
 
-        getConfigurator().apply(new CANcoderConfiguration());
-        getConfigurator().apply(configuration);
+        configure(configuration);
     }
 
     /**
@@ -32,8 +36,42 @@ public class SuperCANCoder extends CANcoder {
     public SuperCANCoder(int deviceID, CANcoderConfiguration configuration, String canbus) {
         super(deviceID, canbus);
 
-        getConfigurator().apply(new CANcoderConfiguration());
-        getConfigurator().apply(configuration);
+        configure(configuration);
+    }
+
+    /**
+     * Applies the configuration through the {@link DeviceConfigurator}. A full
+     * configuration resets every other setting to its default, so no factory
+     * default apply is needed. Unchanged configurations are skipped by the
+     * {@link ConfigurationCache}
+     * 
+     * @param configuration Configuration, it is copied before applying
+     */
+    private void configure(CANcoderConfiguration configuration) {
+        CANcoderConfiguration copy = new CANcoderConfiguration();
+        copy.deserialize(configuration.serialize());
+
+        String deviceName = DeviceConfigurator.deviceName("CANcoder", getDeviceID(), getNetwork());
+        DeviceConfigurator.getInstance().submit(deviceName,
+                ConfigurationCache.getInstance().applyIfChanged(deviceName,
+                        ConfigurationCache.fingerprint(copy.serialize()),
+                        timeoutSeconds -> magnetSensorMatches(copy.MagnetSensor, timeoutSeconds),
+                        timeoutSeconds -> getConfigurator().apply(copy, timeoutSeconds)));
+    }
+
+    /**
+     * Reads back the magnet sensor configuration of the device
+     * 
+     * @param expected       Expected magnet sensor configuration
+     * @param timeoutSeconds Max time to wait for the device
+     * @return True if the device has the expected configuration
+     */
+    private boolean magnetSensorMatches(MagnetSensorConfigs expected, double timeoutSeconds) {
+        MagnetSensorConfigs actual = new MagnetSensorConfigs();
+        return getConfigurator().refresh(actual, timeoutSeconds).isOK()
+                && Math.abs(actual.MagnetOffset - expected.MagnetOffset) < MAGNET_OFFSET_TOLERANCE
+                && actual.SensorDirection == expected.SensorDirection
+                && actual.AbsoluteSensorRange == expected.AbsoluteSensorRange;
     }
 
 }
@@ -22,6 +22,7 @@ import java.util.function.Predicate;
 /** Class for managing persistent alerts to be sent over NetworkTables. */
 public class Alert {
   private static Map<String, SendableAlerts> groups = new HashMap<String, SendableAlerts>();
+  private static boolean dashboardPublishing = true;
 
   private final AlertType type;
   private boolean active = false;
@@ -50,7 +51,9 @@ public class Alert {
   public Alert(String group, String text, AlertType type) {
     if (!groups.containsKey(group)) {
       groups.put(group, new SendableAlerts());
-      SmartDashboard.putData(group, groups.get(group));
+      if (dashboardPublishing) {
+        SmartDashboard.putData(group, groups.get(group));
+      }
     }
 
     this.text = text;
@@ -58,6 +61,17 @@ public class Alert {
     groups.get(group).alerts.add(this);
   }
 
+  /**
+   * Sets whether new alert groups are published to SmartDashboard. Disabled when
+   * replaying logs in performance mode. Groups that were already published stay
+   * published.
+   *
+   * @param enabled True to publish new groups
+   */
+  public static void setDashboardPublishing(boolean enabled) {
+    dashboardPublishing = enabled;
+  }
+
   /**
    * Sets whether the alert should currently be displayed. When activated, the alert text will also
    * be sent to the console.
@@ -80,6 +94,11 @@ public class Alert {
     this.active = active;
   }
 
+  /** Returns whether the alert is currently displayed. */
+  public boolean get() {
+    return active;
+  }
+
   /** Updates current alert text. */
   public void setText(String text) {
     if (active && !text.equals(this.text)) {
@@ -98,6 +117,15 @@ public class Alert {
     this.text = text;
   }
 
+  /**
+   * Returns the dashboard strings of a group, used to benchmark the dashboard update. Returns an
+   * empty array if the group does not exist.
+   */
+  static String[] getStrings(String group, AlertType type) {
+    SendableAlerts alerts = groups.get(group);
+    return alerts == null ? new String[] {} : alerts.getStrings(type);
+  }
+
   private static class SendableAlerts implements Sendable {
     public final List<Alert> alerts = new ArrayList<>();
 
@@ -0,0 +1,223 @@
+package com.andromedalib.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.littletonrobotics.junction.Logger;
+
+import com.andromedalib.util.Alert.AlertType;
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.CANBus;
+import com.ctre.phoenix6.hardware.ParentDevice;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
+import com.revrobotics.CANSparkMax;
+
+/**
+ * Plans the status frame rates of every CAN device.
+ *
+ * <p>
+ * Devices register the signals they need and the rate they need them at
+ * instead of setting update frequencies themselves. When a signal is
+ * registered more than once the highest rate wins. {@link #apply()} sets every
+ * pending frequency in one pass, optimizes the registered Phoenix devices so
+ * unused signals are disabled, and tunes the SparkMax periodic frames.
+ *
+ * <p>
+ * The planner also estimates the load of the plan on each bus, assuming one
+ * frame per signal, and raises an {@link Alert} when it exceeds the
+ * configured budget. The estimate is an upper bound for Phoenix devices,
+ * which may pack several signals in a frame, and does not include frames that
+ * were not registered.
+ */
+public class CANBusPlanner {
+    private static CANBusPlanner instance = null;
+
+    /* Classic CAN, 1 Mbps with an 8 byte payload and worst case bit stuffing */
+    private static final double CLASSIC_FRAME_SECONDS = 135e-6;
+    /* CAN FD, arbitration at 1 Mbps and data phase at 8 Mbps */
+    private static final double FD_FRAME_SECONDS = 40e-6 + 100.0 / 8e6;
+
+    private static final String RIO_BUS = "rio";
+
+    private double budget = 0.7;
+
+    private final Map<BaseStatusSignal, PlannedSignal> signals = new IdentityHashMap<>();
+    private final List<PlannedSignal> pendingSignals = new ArrayList<>();
+    private final List<ParentDevice> pendingDevices = new ArrayList<>();
+    private final Map<CANSparkMax, Map<PeriodicFrame, Integer>> sparkFrames = new IdentityHashMap<>();
+    private final List<CANSparkMax> pendingSparks = new ArrayList<>();
+
+    private final Map<String, Alert> budgetAlerts = new HashMap<>();
+
+    public static CANBusPlanner getInstance() {
+        if (instance == null) {
+            instance = new CANBusPlanner();
+        }
+        return instance;
+    }
+
+    private CANBusPlanner() {
+    }
+
+    /**
+     * Sets the max fraction of each bus the plan may use before warning
+     *
+     * @param budget Budget, from 0 to 1
+     */
+    public synchronized void setBudget(double budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Registers signals of a Phoenix device and the rate they are needed at
+     *
+     * @param device          Device owning the signals
+     * @param frequencyHertz  Required update frequency
+     * @param requiredSignals Signals to register
+     */
+    public synchronized void registerSignals(ParentDevice device, double frequencyHertz,
+            BaseStatusSignal... requiredSignals) {
+        for (BaseStatusSignal signal : requiredSignals) {
+            PlannedSignal planned = signals.get(signal);
+            if (planned == null) {
+                planned = new PlannedSignal(signal, device.getNetwork(), frequencyHertz);
+                signals.put(signal, planned);
+            } else if (frequencyHertz > planned.frequencyHertz) {
+                planned.frequencyHertz = frequencyHertz;
+            } else {
+                continue;
+            }
+            if (!pendingSignals.contains(planned)) {
+                pendingSignals.add(planned);
+            }
+        }
+    }
+
+    /**
+     * Registers Phoenix devices whose unregistered signals should be disabled
+     *
+     * @param devices Devices to optimize
+     */
+    public synchronized void optimize(ParentDevice... devices) {
+        for (ParentDevice device : devices) {
+            pendingDevices.add(device);
+        }
+    }
+
+    /**
+     * Registers a SparkMax periodic frame. When a frame is registered more than
+     * once the shortest period wins
+     *
+     * @param sparkMax Motor controller
+     * @param frame    Periodic frame
+     * @param periodMs Required period in milliseconds
+     */
+    public synchronized void registerSparkMaxFrame(CANSparkMax sparkMax, PeriodicFrame frame, int periodMs) {
+        Map<PeriodicFrame, Integer> frames = sparkFrames.computeIfAbsent(sparkMax,
+                key -> new LinkedHashMap<>());
+        Integer current = frames.get(frame);
+        if (current == null || periodMs < current) {
+            frames.put(frame, periodMs);
+            if (!pendingSparks.contains(sparkMax)) {
+                pendingSparks.add(sparkMax);
+            }
+        }
+    }
+
+    /**
+     * Applies every pending registration and checks the plan against the budget
+     *
+     * @return True if every bus is within budget
+     */
+    public synchronized boolean apply() {
+        // Frequencies must be set before optimizing, which disables every other
+        // signal. Frequencies are grouped to set them with as few calls as possible
+        Map<Double, List<BaseStatusSignal>> byFrequency = new TreeMap<>();
+        for (PlannedSignal planned : pendingSignals) {
+            byFrequency.computeIfAbsent(planned.frequencyHertz, key -> new ArrayList<>()).add(planned.signal);
+        }
+        for (Map.Entry<Double, List<BaseStatusSignal>> entry : byFrequency.entrySet()) {
+            BaseStatusSignal.setUpdateFrequencyForAll(entry.getKey(),
+                    entry.getValue().toArray(new BaseStatusSignal[0]));
+        }
+        if (!pendingDevices.isEmpty()) {
+            ParentDevice.optimizeBusUtilizationForAll(pendingDevices.toArray(new ParentDevice[0]));
+        }
+        for (CANSparkMax sparkMax : pendingSparks) {
+            for (Map.Entry<PeriodicFrame, Integer> entry : sparkFrames.get(sparkMax).entrySet()) {
+                sparkMax.setPeriodicFramePeriod(entry.getKey(), entry.getValue());
+            }
+        }
+        pendingSignals.clear();
+        pendingDevices.clear();
+        pendingSparks.clear();
+
+        boolean withinBudget = true;
+        for (Map.Entry<String, Double> entry : estimateUtilization().entrySet()) {
+            String bus = entry.getKey();
+            double utilization = entry.getValue();
+            boolean overBudget = utilization > budget;
+            withinBudget &= !overBudget;
+
+            budgetAlerts.computeIfAbsent(bus,
+                    key -> new Alert("CAN bus \"" + key + "\" status frame plan exceeds the budget",
+                            AlertType.WARNING))
+                    .set(overBudget);
+            Logger.recordOutput("CANBusPlanner/" + bus + "/Utilization", utilization);
+        }
+        return withinBudget;
+    }
+
+    /**
+     * Estimates the load of the registered frames on every bus
+     *
+     * @return Map from bus name to the expected fraction of the bus in use
+     */
+    public synchronized Map<String, Double> estimateUtilization() {
+        Map<String, Double> utilization = new TreeMap<>();
+        Map<String, Double> frameSeconds = new HashMap<>();
+
+        for (PlannedSignal planned : signals.values()) {
+            double frame = frameSeconds.computeIfAbsent(planned.canbus, CANBusPlanner::frameSeconds);
+            utilization.merge(planned.canbus, planned.frequencyHertz * frame, Double::sum);
+        }
+        for (Map<PeriodicFrame, Integer> frames : sparkFrames.values()) {
+            for (int periodMs : frames.values()) {
+                if (periodMs > 0) {
+                    utilization.merge(RIO_BUS, 1000.0 / periodMs * CLASSIC_FRAME_SECONDS, Double::sum);
+                }
+            }
+        }
+        return utilization;
+    }
+
+    /**
+     * Gets the time a single frame takes on a bus
+     *
+     * @param canbus Bus name
+     * @return Frame time in seconds
+     */
+    private static double frameSeconds(String canbus) {
+        if (canbus.isEmpty() || canbus.equals(RIO_BUS)) {
+            return CLASSIC_FRAME_SECONDS;
+        }
+        return CANBus.isNetworkFD(canbus) ? FD_FRAME_SECONDS : CLASSIC_FRAME_SECONDS;
+    }
+
+    private static class PlannedSignal {
+        private final BaseStatusSignal signal;
+        private final String canbus;
+        private double frequencyHertz;
+
+        private PlannedSignal(BaseStatusSignal signal, String canbus, double frequencyHertz) {
+            this.signal = signal;
+            this.canbus = canbus.isEmpty() ? RIO_BUS : canbus;
+            this.frequencyHertz = frequencyHertz;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.andromedalib.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.andromedalib.util.DeviceConfigurator.ConfigAction;
+import com.ctre.phoenix6.StatusCode;
+
+import edu.wpi.first.wpilibj.Preferences;
+
+/**
+ * Remembers the last configuration applied to every device.
+ *
+ * <p>
+ * A fingerprint of the intended configuration is persisted in the roboRIO
+ * {@link Preferences} after a successful apply. On the next boot, devices
+ * whose configuration did not change skip the apply (and the flash burn for
+ * REV devices). The fingerprint alone cannot detect a swapped or factory reset
+ * device, so the configuration is also read back from the device before
+ * skipping: the whole configuration for Phoenix devices, and every setting
+ * REVLib can read for REV devices.
+ */
+public class ConfigurationCache {
+    private static ConfigurationCache instance = null;
+
+    private static final String PREFIX = "DeviceConfigCache/";
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    /* Devices round the numeric settings to their own resolution */
+    private static final double READ_BACK_RELATIVE_TOLERANCE = 1e-3;
+    private static final double READ_BACK_ABSOLUTE_TOLERANCE = 1e-6;
+
+    private boolean enabled = true;
+    private int skippedCount = 0;
+
+    public static ConfigurationCache getInstance() {
+        if (instance == null) {
+            instance = new ConfigurationCache();
+        }
+        return instance;
+    }
+
+    private ConfigurationCache() {
+    }
+
+    /**
+     * Enables or disables skipping unchanged configurations. Disable it to force
+     * every device to be configured
+     *
+     * @param enabled True to skip unchanged configurations
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Computes the fingerprint of a serialized configuration
+     *
+     * @param serializedConfig Serialized configuration
+     * @return 64 bit fingerprint
+     */
+    public static long fingerprint(String serializedConfig) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte value : serializedConfig.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= value & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Computes the fingerprint of a list of configuration parameters
+     *
+     * @param parameters Configuration parameters
+     * @return 64 bit fingerprint
+     */
+    public static long fingerprint(Object... parameters) {
+        return fingerprint(Arrays.deepToString(parameters));
+    }
+
+    /**
+     * Compares a Phoenix configuration read back from a device with the intended
+     * one. Numeric settings are compared with a small tolerance, since the device
+     * rounds them, and every other setting exactly
+     *
+     * @param expected Intended configuration
+     * @param actual   Configuration read back from the device
+     * @return True if every setting matches
+     */
+    public static boolean phoenixConfigsMatch(Object expected, Object actual) {
+        try {
+            return fieldsMatch(expected, actual);
+        } catch (IllegalAccessException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Compares the public fields of two configurations or configuration groups
+     */
+    private static boolean fieldsMatch(Object expected, Object actual) throws IllegalAccessException {
+        if (expected == null || actual == null) {
+            return expected == actual;
+        }
+        if (expected instanceof Double && actual instanceof Double) {
+            double a = (Double) expected;
+            double b = (Double) actual;
+            return Math.abs(a - b) <= READ_BACK_ABSOLUTE_TOLERANCE
+                    + READ_BACK_RELATIVE_TOLERANCE * Math.max(Math.abs(a), Math.abs(b));
+        }
+        if (expected instanceof Number || expected instanceof Boolean || expected instanceof Enum
+                || expected instanceof String) {
+            return Objects.equals(expected, actual);
+        }
+
+        for (Field field : expected.getClass().getFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !fieldsMatch(field.get(expected), field.get(actual))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the fingerprint matches the last one stored for the device
+     *
+     * @param deviceName  Device name
+     * @param fingerprint Fingerprint of the intended configuration
+     * @return True if the configuration did not change
+     */
+    public synchronized boolean matches(String deviceName, long fingerprint) {
+        String key = PREFIX + deviceName;
+        return enabled && Preferences.containsKey(key) && Preferences.getLong(key, 0) == fingerprint;
+    }
+
+    /**
+     * Stores the fingerprint of a configuration that was applied successfully
+     *
+     * @param deviceName  Device name
+     * @param fingerprint Fingerprint of the applied configuration
+     */
+    public synchronized void store(String deviceName, long fingerprint) {
+        Preferences.setLong(PREFIX + deviceName, fingerprint);
+    }
+
+    /**
+     * Forgets the fingerprint of a device, so its next configuration is applied
+     *
+     * @param deviceName Device name
+     */
+    public synchronized void invalidate(String deviceName) {
+        Preferences.remove(PREFIX + deviceName);
+    }
+
+    /**
+     * Forgets every stored fingerprint
+     */
+    public synchronized void invalidateAll() {
+        for (String key : Preferences.getKeys()) {
+            if (key.startsWith(PREFIX)) {
+                Preferences.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Records a skipped configuration. The count is reported by the
+     * {@link DeviceConfigurator} once the batch is applied
+     *
+     * @param deviceName Device name
+     */
+    public synchronized void markSkipped(String deviceName) {
+        skippedCount++;
+    }
+
+    /**
+     * Gets the amount of configurations skipped since the robot started
+     *
+     * @return Skipped configurations
+     */
+    public synchronized int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * Wraps a Phoenix apply so it only runs when the configuration changed
+     *
+     * @param deviceName  Device name
+     * @param fingerprint Fingerprint of the intended configuration
+     * @param verifier    Reads back settings from the device, returns true if
+     *                    they match the intended configuration
+     * @param action      Apply action
+     * @return Apply action that skips unchanged configurations
+     */
+    public ConfigAction applyIfChanged(String deviceName, long fingerprint, ConfigVerifier verifier,
+            ConfigAction action) {
+        return timeoutSeconds -> {
+            if (matches(deviceName, fingerprint) && verifier.matches(timeoutSeconds)) {
+                markSkipped(deviceName);
+                return StatusCode.OK;
+            }
+
+            StatusCode status = action.apply(timeoutSeconds);
+            if (status.isOK()) {
+                store(deviceName, fingerprint);
+            } else {
+                invalidate(deviceName);
+            }
+            return status;
+        };
+    }
+
+    /** Reads back settings from a device */
+    @FunctionalInterface
+    public interface ConfigVerifier {
+        /**
+         * Checks the device settings
+         *
+         * @param timeoutSeconds Max time to wait for the device
+         * @return True if the device matches the intended configuration
+         */
+        boolean matches(double timeoutSeconds);
+    }
+}
@@ -0,0 +1,251 @@
+package com.andromedalib.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.littletonrobotics.junction.Logger;
+
+import com.andromedalib.util.Alert.AlertType;
+import com.ctre.phoenix6.StatusCode;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Applies device configurations at robot startup.
+ *
+ * <p>
+ * Outside of a batch every configuration is applied as soon as it is
+ * submitted, like the devices used to do in their constructors. Between
+ * {@link #beginBatch()} and {@link #applyAll()} configurations are queued and
+ * then applied concurrently, so the blocking round trips of every device
+ * overlap instead of adding up. {@link com.andromedalib.robot.SuperRobot}
+ * opens a batch around {@code initSubsystems()}.
+ *
+ * <p>
+ * Settings changed on a device while its configuration is queued would be
+ * overwritten by it: the motor wrappers merge their setters into the queued
+ * configuration, and any other direct change should be made in
+ * {@link #afterApply(Runnable)}.
+ *
+ * <p>
+ * Every apply is retried a bounded amount of times with a timeout. The time
+ * spent on each device and on the whole batch is reported to the console and
+ * the log.
+ */
+public class DeviceConfigurator {
+    private static DeviceConfigurator instance = null;
+
+    private static final int MAX_THREADS = 8;
+
+    private int maxAttempts = 3;
+    private double timeoutSeconds = 0.25;
+
+    private boolean batching = false;
+    private int skippedAtBatchStart = 0;
+    private final List<PendingConfig> pendingConfigs = new ArrayList<>();
+    private final List<Runnable> afterApplyActions = new ArrayList<>();
+
+    private final Alert failedAlert = new Alert("Some devices could not be configured, check the console",
+            AlertType.ERROR);
+
+    public static DeviceConfigurator getInstance() {
+        if (instance == null) {
+            instance = new DeviceConfigurator();
+        }
+        return instance;
+    }
+
+    private DeviceConfigurator() {
+    }
+
+    /**
+     * Sets the retry policy of every apply
+     *
+     * @param maxAttempts    Max attempts per device
+     * @param timeoutSeconds Timeout of each attempt in seconds
+     */
+    public synchronized void setRetryPolicy(int maxAttempts, double timeoutSeconds) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * Starts queueing configurations until {@link #applyAll()} is called
+     */
+    public synchronized void beginBatch() {
+        batching = true;
+        skippedAtBatchStart = ConfigurationCache.getInstance().getSkippedCount();
+    }
+
+    /**
+     * Checks if configurations are currently being queued
+     *
+     * @return True if a batch is open
+     */
+    public synchronized boolean isBatching() {
+        return batching;
+    }
+
+    /**
+     * Submits a device configuration. It is applied right away unless a batch is
+     * open
+     *
+     * @param deviceName Name used when reporting
+     * @param action     Apply action, receives the timeout in seconds
+     */
+    public synchronized void submit(String deviceName, ConfigAction action) {
+        PendingConfig config = new PendingConfig(deviceName, action);
+        if (batching) {
+            pendingConfigs.add(config);
+            return;
+        }
+
+        config.run(maxAttempts, timeoutSeconds);
+        report(List.of(config), config.elapsedSeconds);
+    }
+
+    /**
+     * Runs an action once the submitted configurations have been applied, e.g.
+     * seeding an encoder that depends on a configured offset. Actions run on the
+     * calling thread in submission order
+     *
+     * @param action Action to run
+     */
+    public synchronized void afterApply(Runnable action) {
+        if (batching) {
+            afterApplyActions.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Applies every queued configuration concurrently, then runs the after apply
+     * actions and closes the batch
+     *
+     * @return True if every device was configured
+     */
+    public synchronized boolean applyAll() {
+        batching = false;
+        long start = System.nanoTime();
+
+        if (!pendingConfigs.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_THREADS, pendingConfigs.size()),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "DeviceConfigurator");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+            List<Future<?>> futures = new ArrayList<>(pendingConfigs.size());
+            for (PendingConfig config : pendingConfigs) {
+                int attempts = maxAttempts;
+                double timeout = timeoutSeconds;
+                futures.add(executor.submit(() -> config.run(attempts, timeout)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    DriverStation.reportError("Device configuration threw an exception: " + e.getCause(),
+                            e.getCause().getStackTrace());
+                }
+            }
+            executor.shutdown();
+        }
+
+        for (Runnable action : afterApplyActions) {
+            action.run();
+        }
+
+        double totalSeconds = (System.nanoTime() - start) / 1e9;
+        boolean allApplied = report(pendingConfigs, totalSeconds);
+        System.out.println(String.format("[DeviceConfigurator] Configured %d devices in %.1f ms, %d unchanged skipped",
+                pendingConfigs.size(), totalSeconds * 1000.0,
+                ConfigurationCache.getInstance().getSkippedCount() - skippedAtBatchStart));
+        pendingConfigs.clear();
+        afterApplyActions.clear();
+        return allApplied;
+    }
+
+    /**
+     * Reports the result of a group of configurations
+     *
+     * @return True if every configuration was applied
+     */
+    private boolean report(List<PendingConfig> configs, double totalSeconds) {
+        boolean allApplied = true;
+        for (PendingConfig config : configs) {
+            String line = String.format("[DeviceConfigurator] %s: %s in %.1f ms (%d attempts)", config.deviceName,
+                    config.status, config.elapsedSeconds * 1000.0, config.attempts);
+            if (config.status.isOK()) {
+                System.out.println(line);
+            } else {
+                DriverStation.reportWarning(line, false);
+                allApplied = false;
+                failedAlert.set(true);
+            }
+            Logger.recordOutput("DeviceConfigurator/Devices/" + config.deviceName + "Ms",
+                    config.elapsedSeconds * 1000.0);
+        }
+
+        Logger.recordOutput("DeviceConfigurator/LastBatchMs", totalSeconds * 1000.0);
+        return allApplied;
+    }
+
+    /**
+     * Builds the name a device is reported with
+     *
+     * @param type     Device type
+     * @param deviceID Device ID
+     * @param canbus   Device canbus
+     * @return Device name
+     */
+    public static String deviceName(String type, int deviceID, String canbus) {
+        if (canbus == null || canbus.isEmpty() || canbus.equals("rio")) {
+            return type + deviceID;
+        }
+        return type + deviceID + "_" + canbus;
+    }
+
+    /** Applies a configuration to a device */
+    @FunctionalInterface
+    public interface ConfigAction {
+        /**
+         * Applies the configuration
+         *
+         * @param timeoutSeconds Max time to wait for the device
+         * @return Status of the apply
+         */
+        StatusCode apply(double timeoutSeconds);
+    }
+
+    private static class PendingConfig {
+        private final String deviceName;
+        private final ConfigAction action;
+
+        private StatusCode status = StatusCode.StatusCodeNotInitialized;
+        private int attempts = 0;
+        private double elapsedSeconds = 0.0;
+
+        private PendingConfig(String deviceName, ConfigAction action) {
+            this.deviceName = deviceName;
+            this.action = action;
+        }
+
+        private void run(int maxAttempts, double timeoutSeconds) {
+            long start = System.nanoTime();
+            do {
+                status = action.apply(timeoutSeconds);
+                attempts++;
+            } while (!status.isOK() && attempts < maxAttempts);
+            elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        }
+    }
+}
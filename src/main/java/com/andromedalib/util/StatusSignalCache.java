@@ -0,0 +1,127 @@
+package com.andromedalib.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.littletonrobotics.junction.Logger;
+
+import com.andromedalib.robot.LoopTimer;
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.hardware.ParentDevice;
+
+/**
+ * Registry of the Phoenix status signals read every loop.
+ *
+ * <p>
+ * Devices register their signals once and get a {@link SignalGroup} back.
+ * The first group refreshed in a loop cycle refreshes every registered signal
+ * with a single {@link BaseStatusSignal#refreshAll} per bus; the rest of the
+ * groups in that cycle read the cached values. Signals are considered stale
+ * once the {@link LoopTimer} starts a new cycle or, when no
+ * {@link com.andromedalib.robot.SuperRobot} is updating it, after a nominal
+ * loop period.
+ */
+public class StatusSignalCache {
+    private static StatusSignalCache instance = null;
+
+    private final Map<String, BaseStatusSignal[]> signalsByBus = new LinkedHashMap<>();
+    private final Map<String, StatusCode> statusByBus = new LinkedHashMap<>();
+
+    private long lastRefreshCycle = -1;
+    private long lastRefreshMicros = 0;
+
+    public static StatusSignalCache getInstance() {
+        if (instance == null) {
+            instance = new StatusSignalCache();
+        }
+        return instance;
+    }
+
+    private StatusSignalCache() {
+    }
+
+    /**
+     * Registers the signals of a device
+     *
+     * @param device  Device owning the signals
+     * @param signals Signals to refresh every cycle
+     * @return {@link SignalGroup} used to refresh and check the signals
+     */
+    public synchronized SignalGroup register(ParentDevice device, BaseStatusSignal... signals) {
+        String canbus = device.getNetwork();
+        BaseStatusSignal[] current = signalsByBus.getOrDefault(canbus, new BaseStatusSignal[0]);
+        BaseStatusSignal[] merged = new BaseStatusSignal[current.length + signals.length];
+        System.arraycopy(current, 0, merged, 0, current.length);
+        System.arraycopy(signals, 0, merged, current.length, signals.length);
+        signalsByBus.put(canbus, merged);
+
+        // Make sure new signals are read before they are first used
+        lastRefreshCycle = -1;
+        return new SignalGroup(signals);
+    }
+
+    /**
+     * Refreshes every registered signal unless they were already refreshed this
+     * cycle
+     */
+    public synchronized void refreshIfStale() {
+        long cycle = LoopTimer.getInstance().getCycleCount();
+        long now = Logger.getRealTimestamp();
+        double maxAgeMicros = LoopTimer.getInstance().getNominalPeriodSeconds() * 1e6;
+
+        if (cycle == lastRefreshCycle && now - lastRefreshMicros < maxAgeMicros) {
+            return;
+        }
+        refreshAll();
+    }
+
+    /**
+     * Refreshes every registered signal with one call per bus
+     */
+    public synchronized void refreshAll() {
+        for (Map.Entry<String, BaseStatusSignal[]> entry : signalsByBus.entrySet()) {
+            statusByBus.put(entry.getKey(), BaseStatusSignal.refreshAll(entry.getValue()));
+        }
+        lastRefreshCycle = LoopTimer.getInstance().getCycleCount();
+        lastRefreshMicros = Logger.getRealTimestamp();
+    }
+
+    /**
+     * Gets the status of the last refresh of a bus
+     *
+     * @param canbus Bus name
+     * @return Status of the refresh, or null if nothing is registered on the bus
+     */
+    public synchronized StatusCode getBusStatus(String canbus) {
+        return statusByBus.get(canbus);
+    }
+
+    /** Signals of a single device */
+    public static class SignalGroup {
+        private final BaseStatusSignal[] signals;
+
+        private SignalGroup(BaseStatusSignal[] signals) {
+            this.signals = signals;
+        }
+
+        /**
+         * Makes sure the signals are refreshed this cycle
+         *
+         * @return True if every signal of the group is up to date
+         */
+        public boolean refresh() {
+            StatusSignalCache.getInstance().refreshIfStale();
+            return isConnected();
+        }
+
+        /**
+         * Checks the signals as of the last refresh, without refreshing them
+         *
+         * @return True if every signal of the group is up to date
+         */
+        public boolean isConnected() {
+            return BaseStatusSignal.isAllGood(signals);
+        }
+    }
+}
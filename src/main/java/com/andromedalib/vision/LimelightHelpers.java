@@ -470,7 +470,17 @@ public class LimelightHelpers {
 
     private static PoseEstimate getBotPoseEstimate(String limelightName, String entryName) {
         var poseEntry = LimelightHelpers.getLimelightNTTableEntry(limelightName, entryName);
-        var poseArray = poseEntry.getDoubleArray(new double[0]);
+        return decodePoseEstimate(poseEntry.getDoubleArray(new double[0]), poseEntry.getLastChange());
+    }
+
+    /**
+     * Decodes a botpose array published by the Limelight
+     * 
+     * @param poseArray        Botpose array
+     * @param lastChangeMicros Time the entry was last changed in microseconds
+     * @return Decoded {@link PoseEstimate}
+     */
+    public static PoseEstimate decodePoseEstimate(double[] poseArray, long lastChangeMicros) {
         var pose = toPose2D(poseArray);
         double latency = extractBotPoseEntry(poseArray, 6);
         int tagCount = (int) extractBotPoseEntry(poseArray, 7);
@@ -478,7 +488,7 @@ public class LimelightHelpers {
         double tagDist = extractBotPoseEntry(poseArray, 9);
         double tagArea = extractBotPoseEntry(poseArray, 10);
         // getlastchange() in microseconds, ll latency in milliseconds
-        var timestamp = (poseEntry.getLastChange() / 1000000.0) - (latency / 1000.0);
+        var timestamp = (lastChangeMicros / 1000000.0) - (latency / 1000.0);
 
         RawFiducial[] rawFiducials = new RawFiducial[tagCount];
         int valsPerFiducial = 7;
@@ -976,6 +986,13 @@ public class LimelightHelpers {
      * Parses Limelight's JSON results dump into a LimelightResults Object
      */
     public static LimelightResults getLatestResults(String limelightName) {
+        return parseResults(getJSONDump(limelightName));
+    }
+
+    /**
+     * Parses a Limelight JSON results dump into a LimelightResults Object
+     */
+    public static LimelightResults parseResults(String json) {
 
         long start = System.nanoTime();
         LimelightHelpers.LimelightResults results = new LimelightHelpers.LimelightResults();
@@ -984,7 +1001,7 @@ public class LimelightHelpers {
         }
 
         try {
-            results = mapper.readValue(getJSONDump(limelightName), LimelightResults.class);
+            results = mapper.readValue(json, LimelightResults.class);
         } catch (JsonProcessingException e) {
             results.error = "lljson error: " + e.getMessage();
         }
@@ -0,0 +1,82 @@
+package com.andromedalib.andromedaSwerve.utils;
+
+import com.andromedalib.andromedaSwerve.andromedaModule.AndromedaModuleIO;
+import com.andromedalib.andromedaSwerve.andromedaModule.AndromedaModuleIOSim;
+import com.andromedalib.andromedaSwerve.andromedaModule.GyroIOSim;
+import com.andromedalib.andromedaSwerve.config.AndromedaSwerveConfig;
+import com.andromedalib.andromedaSwerve.subsystems.AndromedaSwerve;
+import com.andromedalib.odometry.SuperRobotState;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Simulated drivetrain shared by the allocation tests and the JMH benchmarks,
+ * built with {@link AndromedaModuleIOSim} modules and a {@link GyroIOSim}
+ */
+public final class SimSwerveFixture {
+    /* Speeds the drive cycles go through */
+    private static final ChassisSpeeds[] TARGET_SPEEDS = new ChassisSpeeds[] {
+            new ChassisSpeeds(3.0, 0.0, 0.0),
+            new ChassisSpeeds(-2.0, 1.5, 2.0),
+            new ChassisSpeeds(0.0, -3.0, -4.0),
+            new ChassisSpeeds(0.5, 0.5, 0.0)
+    };
+
+    private SimSwerveFixture() {
+    }
+
+    /**
+     * Creates the profile of a square drivetrain with 0.6 m between the modules
+     *
+     * @return Swerve profile
+     */
+    public static AndromedaSwerveConfig createConfig() {
+        Translation2d[] translations = new Translation2d[] {
+                new Translation2d(0.3, -0.3),
+                new Translation2d(-0.3, -0.3),
+                new Translation2d(-0.3, 0.3),
+                new Translation2d(0.3, 0.3)
+        };
+        return new AndromedaSwerveConfig(0.1, 0.6, 0.6,
+                new SwerveDriveKinematics(translations), translations, 4.5, 8.0, 10.0, 20.0, 0.1);
+    }
+
+    /**
+     * Creates a simulated drivetrain. The gyro integrates the measured yaw rate
+     *
+     * @param config Swerve profile
+     * @return Drivetrain
+     */
+    public static AndromedaSwerve createSwerve(AndromedaSwerveConfig config) {
+        HAL.initialize(500, 0);
+
+        AndromedaModuleIO[] modules = new AndromedaModuleIO[config.moduleTranslations.length];
+        for (int i = 0; i < modules.length; i++) {
+            modules[i] = new AndromedaModuleIOSim(config.wheelDiameter);
+        }
+        AndromedaSwerve[] swerve = new AndromedaSwerve[1];
+        swerve[0] = new AndromedaSwerve(
+                new GyroIOSim(() -> swerve[0].getRobotRelativeChassisSpeeds().omegaRadiansPerSecond),
+                modules, config, new SuperRobotState(config.swerveKinematics));
+        return swerve[0];
+    }
+
+    /**
+     * Computes the module states of every target speed up front, so a drive cycle
+     * only measures the command
+     *
+     * @param config Swerve profile
+     * @return Module states of each target
+     */
+    public static SwerveModuleState[][] createTargetStates(AndromedaSwerveConfig config) {
+        SwerveModuleState[][] targetStates = new SwerveModuleState[TARGET_SPEEDS.length][];
+        for (int i = 0; i < TARGET_SPEEDS.length; i++) {
+            targetStates[i] = config.swerveKinematics.toSwerveModuleStates(TARGET_SPEEDS[i]);
+        }
+        return targetStates;
+    }
+}
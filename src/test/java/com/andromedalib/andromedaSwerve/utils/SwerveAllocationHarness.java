@@ -0,0 +1,121 @@
+package com.andromedalib.andromedaSwerve.utils;
+
+import org.littletonrobotics.junction.Logger;
+
+import com.andromedalib.andromedaSwerve.andromedaModule.AndromedaModule;
+import com.andromedalib.andromedaSwerve.andromedaModule.AndromedaModuleIOSim;
+import com.andromedalib.andromedaSwerve.config.AndromedaSwerveConfig;
+import com.andromedalib.andromedaSwerve.subsystems.AndromedaSwerve;
+import com.andromedalib.robot.LoopTimer;
+import com.andromedalib.util.AllocationBudget;
+
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Drives a simulated {@link AndromedaSwerve} to enforce allocation budgets.
+ *
+ * <p>
+ * The drivetrain is built by {@link SimSwerveFixture}, so no hardware or robot
+ * loop is needed. The AdvantageKit
+ * {@link Logger} is started with a receiver that drops every entry, so
+ * {@code processInputs} and {@code recordOutput} do their full work and their
+ * allocations count. The check methods fail the test when a hot path starts
+ * allocating more than its budget:
+ *
+ * <pre>
+ * SwerveAllocationHarness harness = new SwerveAllocationHarness(config);
+ * harness.checkPeriodic(32768);
+ * harness.checkDrive(4096);
+ * </pre>
+ */
+public class SwerveAllocationHarness {
+    public static final int DEFAULT_WARMUP_CYCLES = 20000;
+    public static final int DEFAULT_CYCLES = 5000;
+
+    private final AndromedaSwerve swerve;
+    private final AndromedaModule module;
+    private final SwerveModuleState[][] targetStates;
+    private int cycle = 0;
+
+    private static boolean loggerStarted = false;
+
+    /**
+     * Creates a simulated drivetrain
+     *
+     * @param config Swerve profile
+     */
+    public SwerveAllocationHarness(AndromedaSwerveConfig config) {
+        swerve = SimSwerveFixture.createSwerve(config);
+        targetStates = SimSwerveFixture.createTargetStates(config);
+        startLogger();
+
+        module = new AndromedaModule(0, "AllocationHarness", config,
+                new AndromedaModuleIOSim(config.wheelDiameter));
+        LoopTimer.getInstance().update();
+        module.updateInputs();
+    }
+
+    /** Starts the Logger once per JVM, it can't be restarted */
+    private static synchronized void startLogger() {
+        if (!loggerStarted) {
+            Logger.addDataReceiver(table -> {
+            });
+            Logger.start();
+            loggerStarted = true;
+        }
+    }
+
+    public AndromedaSwerve getSwerve() {
+        return swerve;
+    }
+
+    /**
+     * Checks the bytes allocated by the swerve periodic (inputs, logging and
+     * odometry)
+     *
+     * @param maxBytesPerCycle Budget in bytes per cycle
+     * @return Measurement result
+     * @throws AssertionError If the budget is exceeded
+     */
+    public AllocationBudget.Result checkPeriodic(long maxBytesPerCycle) {
+        return new AllocationBudget("AndromedaSwerve.periodic", maxBytesPerCycle)
+                .check(DEFAULT_WARMUP_CYCLES, DEFAULT_CYCLES, this::runPeriodic);
+    }
+
+    /**
+     * Checks the bytes allocated by commanding module states
+     *
+     * @param maxBytesPerCycle Budget in bytes per cycle
+     * @return Measurement result
+     * @throws AssertionError If the budget is exceeded
+     */
+    public AllocationBudget.Result checkDrive(long maxBytesPerCycle) {
+        return new AllocationBudget("AndromedaSwerve.setModuleStates", maxBytesPerCycle)
+                .check(DEFAULT_WARMUP_CYCLES, DEFAULT_CYCLES, this::runDrive);
+    }
+
+    /**
+     * Checks the bytes allocated by a module periodic, which logs the inputs and
+     * builds the odometry positions of a single sample
+     *
+     * @param maxBytesPerCycle Budget in bytes per cycle
+     * @return Measurement result
+     * @throws AssertionError If the budget is exceeded
+     */
+    public AllocationBudget.Result checkModulePeriodic(long maxBytesPerCycle) {
+        return new AllocationBudget("AndromedaModule.periodic", maxBytesPerCycle)
+                .check(DEFAULT_WARMUP_CYCLES, DEFAULT_CYCLES, module::periodic);
+    }
+
+    /** Runs a periodic cycle */
+    public void runPeriodic() {
+        LoopTimer.getInstance().update();
+        swerve.periodic();
+    }
+
+    /** Commands the next target states */
+    public void runDrive() {
+        cycle = (cycle + 1) & 3;
+        swerve.setModuleStates(targetStates[cycle]);
+    }
+}
@@ -0,0 +1,33 @@
+package com.andromedalib.andromedaSwerve.utils;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class SwerveAllocationTest {
+    /* Budgets in bytes per cycle, including the AdvantageKit logging */
+    private static final long SWERVE_PERIODIC_BUDGET = 32768;
+    private static final long SET_MODULE_STATES_BUDGET = 4096;
+    private static final long MODULE_PERIODIC_BUDGET = 4096;
+
+    private static SwerveAllocationHarness harness;
+
+    @BeforeAll
+    static void setup() {
+        harness = new SwerveAllocationHarness(SimSwerveFixture.createConfig());
+    }
+
+    @Test
+    void swervePeriodicStaysWithinBudget() {
+        harness.checkPeriodic(SWERVE_PERIODIC_BUDGET);
+    }
+
+    @Test
+    void setModuleStatesStaysWithinBudget() {
+        harness.checkDrive(SET_MODULE_STATES_BUDGET);
+    }
+
+    @Test
+    void modulePeriodicStaysWithinBudget() {
+        harness.checkModulePeriodic(MODULE_PERIODIC_BUDGET);
+    }
+}
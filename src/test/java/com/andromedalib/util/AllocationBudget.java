@@ -0,0 +1,100 @@
+package com.andromedalib.util;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes a code path allocates per call.
+ *
+ * <p>
+ * The path is run for a number of warmup cycles, so the JIT can remove
+ * allocations through escape analysis, and then measured with
+ * {@code com.sun.management.ThreadMXBean}. Because the counter is per thread,
+ * work done by other threads does not affect the result. {@link #check} throws
+ * an {@link AssertionError} when the budget is exceeded, so budgets can be
+ * enforced from unit tests.
+ */
+public class AllocationBudget {
+    private final String name;
+    private final long maxBytesPerCycle;
+
+    /**
+     * Creates a new AllocationBudget
+     *
+     * @param name             Name of the measured path
+     * @param maxBytesPerCycle Max mean bytes allocated per cycle
+     */
+    public AllocationBudget(String name, long maxBytesPerCycle) {
+        this.name = name;
+        this.maxBytesPerCycle = maxBytesPerCycle;
+    }
+
+    /**
+     * Measures the path and fails if it allocates more than the budget
+     *
+     * @param warmupCycles Cycles run before measuring
+     * @param cycles       Measured cycles
+     * @param cycle        Code run every cycle
+     * @return Measurement result
+     * @throws AssertionError If the budget is exceeded
+     */
+    public Result check(int warmupCycles, int cycles, Runnable cycle) {
+        Result result = measure(warmupCycles, cycles, cycle);
+        if (result.meanBytesPerCycle > maxBytesPerCycle) {
+            throw new AssertionError(String.format("%s allocated %.0f bytes per cycle (max %d), budget is %d",
+                    name, result.meanBytesPerCycle, result.maxBytesPerCycle, maxBytesPerCycle));
+        }
+        return result;
+    }
+
+    /**
+     * Measures the bytes a path allocates per cycle
+     *
+     * @param warmupCycles Cycles run before measuring
+     * @param cycles       Measured cycles
+     * @param cycle        Code run every cycle
+     * @return Measurement result
+     * @throws UnsupportedOperationException If the JVM cannot measure thread
+     *                                       allocations
+     */
+    public static Result measure(int warmupCycles, int cycles, Runnable cycle) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            throw new UnsupportedOperationException("Thread allocation measurement is not supported by this JVM");
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        for (int i = 0; i < warmupCycles; i++) {
+            cycle.run();
+        }
+
+        long maxBytes = 0;
+        long start = threadBean.getCurrentThreadAllocatedBytes();
+        long last = start;
+        for (int i = 0; i < cycles; i++) {
+            cycle.run();
+            long now = threadBean.getCurrentThreadAllocatedBytes();
+            maxBytes = Math.max(maxBytes, now - last);
+            last = now;
+        }
+
+        return new Result((double) (last - start) / Math.max(1, cycles), maxBytes);
+    }
+
+    /** Bytes allocated by a measured path */
+    public static final class Result {
+        public final double meanBytesPerCycle;
+        public final long maxBytesPerCycle;
+
+        public Result(double meanBytesPerCycle, long maxBytesPerCycle) {
+            this.meanBytesPerCycle = meanBytesPerCycle;
+            this.maxBytesPerCycle = maxBytesPerCycle;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.0f bytes per cycle (max %d)", meanBytesPerCycle, maxBytesPerCycle);
+        }
+    }
+}
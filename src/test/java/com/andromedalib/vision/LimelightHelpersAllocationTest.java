@@ -0,0 +1,33 @@
+package com.andromedalib.vision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.andromedalib.util.AllocationBudget;
+
+class LimelightHelpersAllocationTest {
+    /* Budget in bytes per cycle */
+    private static final long POSE_ESTIMATE_BUDGET = 2048;
+    private static final String LIMELIGHT = "limelight-allocation";
+    private static final int WARMUP_CYCLES = 20000;
+    private static final int CYCLES = 5000;
+
+    @BeforeAll
+    static void setup() {
+        // Pose, latency, tag count, span, distance, area and 7 values per tag
+        LimelightHelpers.setLimelightNTDoubleArray(LIMELIGHT, "botpose_wpiblue", new double[] {
+                2.0, 3.0, 0.0, 0.0, 0.0, 45.0, 20.0, 2.0, 1.2, 2.5, 0.3,
+                7.0, 0.1, -0.2, 0.15, 2.4, 2.5, 0.05,
+                8.0, -0.3, 0.1, 0.12, 2.6, 2.7, 0.08 });
+    }
+
+    @Test
+    void poseEstimateStaysWithinBudget() {
+        assertEquals(2, LimelightHelpers.getBotPoseEstimate_wpiBlue(LIMELIGHT).tagCount);
+
+        new AllocationBudget("LimelightHelpers.getBotPoseEstimate", POSE_ESTIMATE_BUDGET)
+                .check(WARMUP_CYCLES, CYCLES, () -> LimelightHelpers.getBotPoseEstimate_wpiBlue(LIMELIGHT));
+    }
+}